@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.jmh.helper.diff;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.test.helper.diff.Diff;
+import de.carne.test.helper.diff.DiffOptions;
+import de.carne.test.helper.diff.DiffResult;
+
+/**
+ * Benchmarks for the {@linkplain Diff} class.
+ * <p>
+ * Every benchmark is run for a set of representative input pairs (see {@linkplain Input}). Allocation rates are
+ * reported via the {@code gc} profiler (enabled by the {@code jmh} build task).
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiffBenchmark {
+
+	private static final int LINE_COUNT = 10000;
+	private static final int CHARACTER_COUNT = 4000;
+
+	/**
+	 * The input pairs to benchmark.
+	 */
+	public enum Input {
+
+		/**
+		 * Identical inputs.
+		 */
+		IDENTICAL,
+
+		/**
+		 * Inputs differing by a few scattered edits.
+		 */
+		SMALL_EDITS,
+
+		/**
+		 * Inputs differing almost everywhere.
+		 */
+		HEAVY_DIVERGENCE,
+
+		/**
+		 * Inputs consisting of few long lines with a few scattered edits.
+		 */
+		LONG_LINES,
+
+		/**
+		 * Inputs consisting of many repeated lines with a few scattered edits.
+		 */
+		REPEATED_LINES
+
+	}
+
+	@Param
+	private Input input = Input.IDENTICAL;
+
+	private String lines1 = "";
+	private String lines2 = "";
+	private String characters1 = "";
+	private String characters2 = "";
+
+	/**
+	 * Generates the benchmark inputs.
+	 */
+	@Setup
+	public void setup() {
+		Random random = new Random(0);
+
+		this.lines1 = generateLines(random);
+		this.lines2 = editLines(random, this.lines1);
+		this.characters1 = this.lines1.substring(0, CHARACTER_COUNT);
+		this.characters2 = editLines(random, this.characters1);
+	}
+
+	private String generateLines(Random random) {
+		StringBuilder buffer = new StringBuilder();
+		int lineCount = (this.input == Input.LONG_LINES ? LINE_COUNT / 100 : LINE_COUNT);
+		int lineLength = (this.input == Input.LONG_LINES ? 4000 : 40);
+
+		for (int lineIndex = 0; lineIndex < lineCount; lineIndex++) {
+			if (this.input == Input.REPEATED_LINES && random.nextInt(4) != 0) {
+				buffer.append(random.nextBoolean() ? "}" : "");
+			} else {
+				for (int charIndex = random.nextInt(lineLength); charIndex < lineLength; charIndex++) {
+					buffer.append((char) ('a' + random.nextInt(26)));
+				}
+			}
+			buffer.append('\n');
+		}
+		return buffer.toString();
+	}
+
+	private String editLines(Random random, String lines) {
+		String editedLines;
+
+		switch (this.input) {
+		case IDENTICAL:
+			editedLines = new String(lines.toCharArray());
+			break;
+		case HEAVY_DIVERGENCE:
+			String divergentLines = generateLines(random);
+
+			editedLines = divergentLines.substring(0, Math.min(lines.length(), divergentLines.length()));
+			break;
+		default:
+			StringBuilder buffer = new StringBuilder(lines);
+
+			for (int editIndex = 0; editIndex < 20; editIndex++) {
+				int editPosition = random.nextInt(buffer.length());
+
+				buffer.setCharAt(editPosition, buffer.charAt(editPosition) == '\n' ? 'x' : '\n');
+			}
+			editedLines = buffer.toString();
+		}
+		return editedLines;
+	}
+
+	/**
+	 * Benchmarks {@linkplain Diff#characters(String, String)}.
+	 *
+	 * @return the diff result.
+	 */
+	@Benchmark
+	public DiffResult<Character> characters() {
+		return Diff.characters(this.characters1, this.characters2);
+	}
+
+	/**
+	 * Benchmarks {@linkplain Diff#lines(String, String)}.
+	 *
+	 * @return the diff result.
+	 */
+	@Benchmark
+	public DiffResult<String> lines() {
+		return Diff.lines(this.lines1, this.lines2);
+	}
+
+	/**
+	 * Benchmarks {@linkplain Diff#lines(String, String, DiffOptions)} in streaming mode.
+	 *
+	 * @return the diff result.
+	 */
+	@Benchmark
+	public DiffResult<String> streamingLines() {
+		return Diff.lines(this.lines1, this.lines2, DiffOptions.streaming(1000));
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import de.carne.util.Exceptions;
+
+/**
+ * Batch differ running the line diffs of multiple file pairs concurrently.
+ * <p>
+ * Every file pair is diffed in a separate task. As each task reads and diffs its files on its own, the I/O of some
+ * tasks overlaps with the diffing of others.
+ * </p>
+ */
+final class BatchDiffer {
+
+	private static final int IO_THREADS_PER_PROCESSOR = 2;
+
+	private BatchDiffer() {
+		// Prevent instantiation
+	}
+
+	// Created on first use and never shut down; safe as the executor only runs daemon (or virtual) threads
+	private static final class DefaultExecutorHolder {
+
+		static final ExecutorService EXECUTOR = newExecutor();
+
+		private DefaultExecutorHolder() {
+			// Prevent instantiation
+		}
+
+	}
+
+	static ExecutorService defaultExecutor() {
+		return DefaultExecutorHolder.EXECUTOR;
+	}
+
+	static ExecutorService newExecutor() {
+		ExecutorService executor;
+
+		try {
+			// Virtual threads are only available from Java 21 on
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+			executor = (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			Exceptions.ignore(e);
+			executor = Executors.newFixedThreadPool(
+					IO_THREADS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors(), daemonThreads());
+		}
+		return executor;
+	}
+
+	static ThreadFactory daemonThreads() {
+		AtomicInteger threadCount = new AtomicInteger();
+
+		return runnable -> {
+			Thread thread = new Thread(runnable, "diff-worker-" + threadCount.incrementAndGet());
+
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	static List<CompletableFuture<FileDiffResult>> submit(Collection<FileDiffPair> pairs, Charset cs,
+			DiffOptions options, Executor executor) {
+		List<CompletableFuture<FileDiffResult>> futures = new ArrayList<>(pairs.size());
+
+		for (FileDiffPair pair : pairs) {
+			futures.add(CompletableFuture.supplyAsync(() -> diff(pair, cs, options), executor));
+		}
+		return futures;
+	}
+
+	static Stream<FileDiffResult> stream(Collection<FileDiffPair> pairs, Charset cs, DiffOptions options,
+			Executor executor) {
+		BlockingQueue<CompletableFuture<FileDiffResult>> completed = new LinkedBlockingQueue<>();
+
+		for (CompletableFuture<FileDiffResult> future : submit(pairs, cs, options, executor)) {
+			future.whenComplete((result, failure) -> completed.add(future));
+		}
+		return Stream.generate(() -> take(completed).join()).limit(pairs.size());
+	}
+
+	private static FileDiffResult diff(FileDiffPair pair, Charset cs, DiffOptions options) {
+		FileDiffResult result;
+
+		try {
+			result = new FileDiffResult(pair, Diff.lines(pair.file1(), pair.file2(), cs, options));
+		} catch (IOException e) {
+			result = new FileDiffResult(pair, e);
+		}
+		return result;
+	}
+
+	private static CompletableFuture<FileDiffResult> take(BlockingQueue<CompletableFuture<FileDiffResult>> completed) {
+		CompletableFuture<FileDiffResult> future;
+
+		try {
+			future = completed.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw Exceptions.toRuntime(e);
+		}
+		return future;
+	}
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import de.carne.test.helper.diff.DiffEntry.Type;
+
+/**
+ * Binary differ based on rolling hash block matching.
+ * <p>
+ * The 1st input is split into fixed size blocks which are indexed by their hash. The 2nd input is then scanned with a
+ * rolling hash to find matching blocks. Every verified block match is extended byte wise in both directions. The
+ * unmatched ranges in between are reported as deleted respectively inserted {@linkplain ByteRange}s. Matches are only
+ * accepted in ascending order, hence moved data is reported as deleted and inserted.
+ * </p>
+ */
+class ByteDiffer {
+
+	private static final int MIN_BLOCK_SIZE = 16;
+	private static final int MAX_BLOCK_SIZE = 4096;
+	private static final int BLOCK_COUNT_HINT = 1 << 16;
+	private static final int HASH_BASE = 0x01000193;
+	private static final int MAX_PROBES = 8;
+
+	private final ByteBuffer left;
+	private final ByteBuffer right;
+	private final ByteBuffer leftView;
+	private final ByteBuffer rightView;
+	private final int blockSize;
+	private final int outFactor;
+	private long[] blockKeys = new long[0];
+	private long[] blockFilter = new long[1];
+	private final DiffEntries<ByteRange> diffs = new DiffEntries<>();
+
+	ByteDiffer(ByteBuffer left, ByteBuffer right) {
+		this.left = left;
+		this.right = right;
+		this.leftView = left.duplicate();
+		this.rightView = right.duplicate();
+		this.blockSize = Math.max(MIN_BLOCK_SIZE,
+				Math.min(Integer.highestOneBit(left.limit() / BLOCK_COUNT_HINT), MAX_BLOCK_SIZE));
+
+		int factor = 1;
+
+		for (int index = 1; index < this.blockSize; index++) {
+			factor *= HASH_BASE;
+		}
+		this.outFactor = factor;
+	}
+
+	public DiffResult<ByteRange> run() {
+		int leftLength = this.left.limit();
+		int rightLength = this.right.limit();
+		int prefixLength = matchForward(0, 0, Math.min(leftLength, rightLength));
+		int suffixLength = matchBackward(leftLength, rightLength,
+				Math.min(leftLength, rightLength) - prefixLength);
+
+		runCore(prefixLength, leftLength - suffixLength, prefixLength, rightLength - suffixLength);
+		return new DiffResult<>(this.diffs, true);
+	}
+
+	private void runCore(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+		indexBlocks(leftStart, leftEnd);
+
+		int leftPosition = leftStart;
+		int rightPosition = rightStart;
+		int scan = rightStart;
+		int hash = 0;
+		boolean hashValid = false;
+
+		while (scan + this.blockSize <= rightEnd) {
+			if (hashValid) {
+				hash = (hash - this.outFactor * this.right.get(scan - 1)) * HASH_BASE
+						+ this.right.get(scan + this.blockSize - 1);
+			} else {
+				hash = hash(this.right, scan);
+				hashValid = true;
+			}
+
+			int match = findBlock(hash, scan, leftPosition, leftEnd);
+
+			if (match >= 0) {
+				int backward = matchBackward(match, scan, Math.min(match - leftPosition, scan - rightPosition));
+				int matchStart = match - backward;
+				int scanStart = scan - backward;
+				int matchLength = backward + this.blockSize
+						+ matchForward(match + this.blockSize, scan + this.blockSize,
+								Math.min(leftEnd - match, rightEnd - scan) - this.blockSize);
+
+				emit(leftPosition, matchStart, rightPosition, scanStart);
+				leftPosition = matchStart + matchLength;
+				rightPosition = scanStart + matchLength;
+				scan = rightPosition;
+				hashValid = false;
+			} else {
+				scan++;
+			}
+		}
+		emit(leftPosition, leftEnd, rightPosition, rightEnd);
+	}
+
+	private void emit(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+		if (rightStart < rightEnd) {
+			this.diffs.add(leftStart, Type.INSERT, new ByteRange(this.right, rightStart, rightEnd));
+		}
+		if (leftStart < leftEnd) {
+			this.diffs.add(leftStart, Type.DELETE, new ByteRange(this.left, leftStart, leftEnd));
+		}
+	}
+
+	private void indexBlocks(int leftStart, int leftEnd) {
+		int blockCount = (leftEnd - leftStart) / this.blockSize;
+
+		this.blockKeys = new long[blockCount];
+		this.blockFilter = new long[Math.max(1, Integer.highestOneBit(Math.max(blockCount, 1)) >> 3)];
+		for (int blockIndex = 0; blockIndex < blockCount; blockIndex++) {
+			int blockStart = leftStart + blockIndex * this.blockSize;
+			int hash = hash(this.left, blockStart);
+
+			this.blockKeys[blockIndex] = ((long) hash << 32) | blockStart;
+			setFilter(hash);
+		}
+		Arrays.sort(this.blockKeys);
+	}
+
+	private void setFilter(int hash) {
+		int bit = hash & ((this.blockFilter.length << 6) - 1);
+
+		this.blockFilter[bit >>> 6] |= 1L << bit;
+	}
+
+	private boolean testFilter(int hash) {
+		int bit = hash & ((this.blockFilter.length << 6) - 1);
+
+		return (this.blockFilter[bit >>> 6] & (1L << bit)) != 0;
+	}
+
+	private int findBlock(int hash, int scan, int leftPosition, int leftEnd) {
+		int match = -1;
+
+		if (testFilter(hash)) {
+			int keyIndex = Arrays.binarySearch(this.blockKeys, ((long) hash << 32) | leftPosition);
+
+			if (keyIndex < 0) {
+				keyIndex = -keyIndex - 1;
+			}
+			for (int probe = 0; probe < MAX_PROBES && keyIndex < this.blockKeys.length; probe++) {
+				long key = this.blockKeys[keyIndex];
+
+				if ((int) (key >>> 32) != hash) {
+					break;
+				}
+
+				int blockStart = (int) key;
+
+				if (blockStart + this.blockSize <= leftEnd && matchForward(blockStart, scan, this.blockSize) == this.blockSize) {
+					match = blockStart;
+					break;
+				}
+				keyIndex++;
+			}
+		}
+		return match;
+	}
+
+	private int hash(ByteBuffer buffer, int start) {
+		int hash = 0;
+
+		for (int index = start; index < start + this.blockSize; index++) {
+			hash = hash * HASH_BASE + buffer.get(index);
+		}
+		return hash;
+	}
+
+	private int matchForward(int leftStart, int rightStart, int length) {
+		int matchLength = length;
+
+		if (length > 0) {
+			this.leftView.limit(leftStart + length).position(leftStart);
+			this.rightView.limit(rightStart + length).position(rightStart);
+
+			int mismatch = this.leftView.mismatch(this.rightView);
+
+			if (mismatch >= 0) {
+				matchLength = mismatch;
+			}
+		}
+		return Math.max(matchLength, 0);
+	}
+
+	private int matchBackward(int leftEnd, int rightEnd, int length) {
+		int matchLength = 0;
+
+		while (matchLength < length && this.left.get(leftEnd - matchLength - 1) == this.right
+				.get(rightEnd - matchLength - 1)) {
+			matchLength++;
+		}
+		return matchLength;
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A range of bytes as reported by a binary diff.
+ * <p>
+ * Instances are read-only views on the diffed input (no data is copied).
+ * </p>
+ */
+public final class ByteRange {
+
+	private static final int TO_STRING_LIMIT = 16;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final ByteBuffer bytes;
+
+	ByteRange(ByteBuffer source, int start, int end) {
+		ByteBuffer view = source.duplicate();
+
+		view.limit(end).position(start);
+		this.bytes = view.slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Gets the number of bytes in this range.
+	 *
+	 * @return the number of bytes in this range.
+	 */
+	public int length() {
+		return this.bytes.remaining();
+	}
+
+	/**
+	 * Gets the bytes in this range.
+	 *
+	 * @return a read-only {@linkplain ByteBuffer} providing access to the bytes in this range.
+	 */
+	public ByteBuffer bytes() {
+		return this.bytes.duplicate();
+	}
+
+	/**
+	 * Gets a copy of the bytes in this range.
+	 *
+	 * @return a copy of the bytes in this range.
+	 */
+	public byte[] toArray() {
+		byte[] array = new byte[this.bytes.remaining()];
+
+		this.bytes.duplicate().get(array);
+		return array;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.bytes.hashCode();
+	}
+
+	@Override
+	public boolean equals(@Nullable Object obj) {
+		return obj instanceof ByteRange && this.bytes.equals(((ByteRange) obj).bytes);
+	}
+
+	@Override
+	public String toString() {
+		int length = this.bytes.remaining();
+		int limit = Math.min(length, TO_STRING_LIMIT);
+		StringBuilder buffer = new StringBuilder();
+
+		for (int index = 0; index < limit; index++) {
+			byte b = this.bytes.get(index);
+
+			buffer.append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
+		}
+		if (limit < length) {
+			buffer.append("...[").append(length).append(']');
+		}
+		return buffer.toString();
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+/**
+ * {@linkplain Differ} implementation working directly on {@code char} arrays.
+ * <p>
+ * Characters are only boxed when they are actually reported as a {@linkplain DiffEntry}.
+ * </p>
+ */
+class CharDiffer extends Differ<Character> {
+
+	private char[] left;
+	private char[] right;
+
+	CharDiffer(int range, DiffOptions options, DiffBuffers buffers) {
+		super(range, options, buffers);
+		this.left = buffers.chars(DiffBuffers.LEFT_CHARS, range);
+		this.right = buffers.chars(DiffBuffers.RIGHT_CHARS, range);
+	}
+
+	public boolean feedLeft(String chars) {
+		int charsLength = chars.length();
+
+		chars.getChars(0, charsLength, this.left, nextLeft(charsLength));
+		return leftLength() < range();
+	}
+
+	public boolean feedRight(String chars) {
+		int charsLength = chars.length();
+
+		chars.getChars(0, charsLength, this.right, nextRight(charsLength));
+		return rightLength() < range();
+	}
+
+	@Override
+	protected Character leftValue(int l) {
+		return Character.valueOf(this.left[l]);
+	}
+
+	@Override
+	protected Character rightValue(int r) {
+		return Character.valueOf(this.right[r]);
+	}
+
+	@Override
+	protected int leftId(int l) {
+		return this.left[l];
+	}
+
+	@Override
+	protected int rightId(int r) {
+		return this.right[r];
+	}
+
+	@Override
+	protected boolean lrEquals(int l, int r) {
+		return this.left[l] == this.right[r];
+	}
+
+	@Override
+	protected void shift(int leftStart, int leftCount, int rightStart, int rightCount) {
+		System.arraycopy(this.left, leftStart, this.left, 0, leftCount);
+		System.arraycopy(this.right, rightStart, this.right, 0, rightCount);
+	}
+
+	@Override
+	protected void resize(int newRange) {
+		this.left = buffers().chars(DiffBuffers.LEFT_CHARS, newRange);
+		this.right = buffers().chars(DiffBuffers.RIGHT_CHARS, newRange);
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.io.IOException;
+
+/**
+ * {@linkplain Differ} implementation diffing two {@linkplain LineSource}s line by line.
+ * <p>
+ * Lines are identified by their offsets within the sources' character buffers and are compared via their hash and
+ * content. Only lines actually reported as a {@linkplain DiffEntry} are materialized into a {@linkplain String}.
+ * </p>
+ */
+class DecodedLineDiffer extends Differ<String> {
+
+	private final LineSource leftSource;
+	private final LineSource rightSource;
+	private int[] leftIds;
+	private int[] rightIds;
+	private int[] leftStarts;
+	private int[] rightStarts;
+	private int[] leftEnds;
+	private int[] rightEnds;
+	private final RefInterner interner;
+
+	DecodedLineDiffer(DiffOptions options, DiffBuffers buffers, LineSource left, LineSource right) {
+		super(options.windowSize(), options, buffers);
+		this.leftSource = left;
+		this.rightSource = right;
+
+		int range = options.windowSize();
+
+		this.leftIds = buffers.ints(DiffBuffers.LEFT_IDS, range);
+		this.rightIds = buffers.ints(DiffBuffers.RIGHT_IDS, range);
+		this.leftStarts = buffers.ints(DiffBuffers.LEFT_STARTS, range);
+		this.rightStarts = buffers.ints(DiffBuffers.RIGHT_STARTS, range);
+		this.leftEnds = buffers.ints(DiffBuffers.LEFT_ENDS, range);
+		this.rightEnds = buffers.ints(DiffBuffers.RIGHT_ENDS, range);
+		this.interner = new RefInterner(buffers, range << 1, this::refEquals);
+	}
+
+	/**
+	 * Feeds the next lines of both sources into the diff window.
+	 *
+	 * @return {@code true} if there are remaining lines which did not fit into the diff window.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public boolean feed() throws IOException {
+		int range = range();
+
+		while (leftLength() < range && this.leftSource.nextLine()) {
+			int l = nextLeft();
+			int start = this.leftSource.lineStart();
+			int end = this.leftSource.lineEnd();
+
+			this.leftStarts[l] = start;
+			this.leftEnds[l] = end;
+			this.leftIds[l] = this.interner.intern(l << 1, this.leftSource.hash(start, end));
+		}
+		while (rightLength() < range && this.rightSource.nextLine()) {
+			int r = nextRight();
+			int start = this.rightSource.lineStart();
+			int end = this.rightSource.lineEnd();
+
+			this.rightStarts[r] = start;
+			this.rightEnds[r] = end;
+			this.rightIds[r] = this.interner.intern((r << 1) | 1, this.rightSource.hash(start, end));
+		}
+		return this.leftSource.hasRemaining() || this.rightSource.hasRemaining();
+	}
+
+	private boolean refEquals(int ref1, int ref2) {
+		int index1 = ref1 >>> 1;
+		int index2 = ref2 >>> 1;
+		boolean equal;
+
+		if ((ref1 & 1) == 0) {
+			equal = refEquals(this.leftSource, this.leftStarts[index1], this.leftEnds[index1], ref2, index2);
+		} else {
+			equal = refEquals(this.rightSource, this.rightStarts[index1], this.rightEnds[index1], ref2, index2);
+		}
+		return equal;
+	}
+
+	private boolean refEquals(LineSource source1, int start1, int end1, int ref2, int index2) {
+		boolean equal;
+
+		if ((ref2 & 1) == 0) {
+			equal = source1.equals(start1, end1, this.leftSource, this.leftStarts[index2], this.leftEnds[index2]);
+		} else {
+			equal = source1.equals(start1, end1, this.rightSource, this.rightStarts[index2], this.rightEnds[index2]);
+		}
+		return equal;
+	}
+
+	@Override
+	protected String leftValue(int l) {
+		return this.leftSource.toString(this.leftStarts[l], this.leftEnds[l]);
+	}
+
+	@Override
+	protected String rightValue(int r) {
+		return this.rightSource.toString(this.rightStarts[r], this.rightEnds[r]);
+	}
+
+	@Override
+	protected int leftId(int l) {
+		return this.leftIds[l];
+	}
+
+	@Override
+	protected int rightId(int r) {
+		return this.rightIds[r];
+	}
+
+	@Override
+	protected boolean lrEquals(int l, int r) {
+		return this.leftIds[l] == this.rightIds[r];
+	}
+
+	@Override
+	protected void shift(int leftStart, int leftCount, int rightStart, int rightCount) {
+		// Discard the characters of all lines which left the window
+		int leftDiscard = (leftCount > 0 ? this.leftStarts[leftStart] : this.leftSource.nextLineStart());
+		int rightDiscard = (rightCount > 0 ? this.rightStarts[rightStart] : this.rightSource.nextLineStart());
+
+		this.leftSource.discard(leftDiscard);
+		this.rightSource.discard(rightDiscard);
+		for (int l = 0; l < leftCount; l++) {
+			this.leftStarts[l] = this.leftStarts[leftStart + l] - leftDiscard;
+			this.leftEnds[l] = this.leftEnds[leftStart + l] - leftDiscard;
+		}
+		for (int r = 0; r < rightCount; r++) {
+			this.rightStarts[r] = this.rightStarts[rightStart + r] - rightDiscard;
+			this.rightEnds[r] = this.rightEnds[rightStart + r] - rightDiscard;
+		}
+		// Re-intern the remaining lines to keep the id table restricted to the current window
+		this.interner.reset();
+		for (int l = 0; l < leftCount; l++) {
+			this.leftIds[l] = this.interner.intern(l << 1, this.leftSource.hash(this.leftStarts[l], this.leftEnds[l]));
+		}
+		for (int r = 0; r < rightCount; r++) {
+			this.rightIds[r] = this.interner.intern((r << 1) | 1,
+					this.rightSource.hash(this.rightStarts[r], this.rightEnds[r]));
+		}
+	}
+
+	@Override
+	protected void resize(int newRange) {
+		DiffBuffers buffers = buffers();
+
+		this.leftIds = buffers.ints(DiffBuffers.LEFT_IDS, newRange);
+		this.rightIds = buffers.ints(DiffBuffers.RIGHT_IDS, newRange);
+		this.leftStarts = buffers.ints(DiffBuffers.LEFT_STARTS, newRange);
+		this.rightStarts = buffers.ints(DiffBuffers.RIGHT_STARTS, newRange);
+		this.leftEnds = buffers.ints(DiffBuffers.LEFT_ENDS, newRange);
+		this.rightEnds = buffers.ints(DiffBuffers.RIGHT_ENDS, newRange);
+		this.interner.resize(newRange << 1);
+	}
+
+}
@@ -22,17 +22,27 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-
-import de.carne.util.Exceptions;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Utility class providing all kinds of diff operations.
  */
 public final class Diff {
 
-	private static final int TEXT_DIFFER_RANGE = 100;
+	private static final int COMPARE_BUFFER_SIZE = 0x10000;
 
 	private Diff() {
 		// Prevent instantiation
@@ -46,20 +56,106 @@ public final class Diff {
 	 * @return the diff result.
 	 */
 	public static DiffResult<Character> characters(String string1, String string2) {
-		int string1Length = string1.length();
-		int string2Length = string2.length();
-		int range = Math.max(string1Length, string2Length);
-		Differ<Character> differ = Differ.characterDiffer(range);
+		return characters(string1, string2, DiffOptions.defaults());
+	}
 
-		for (int charIndex = 0; charIndex < string1Length; charIndex++) {
-			differ.feedLeft(Character.valueOf(string1.charAt(charIndex)));
-		}
+	/**
+	 * Diffs two strings character by character.
+	 * <p>
+	 * The strings are always diffed as a whole. Hence the window sizes of the given options are ignored.
+	 * </p>
+	 *
+	 * @param string1 the 1st string to diff.
+	 * @param string2 the 2nd string to diff.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff result.
+	 */
+	public static DiffResult<Character> characters(String string1, String string2, DiffOptions options) {
+		return DiffEngine.current().characters(string1, string2, options);
+	}
 
-		for (int charIndex = 0; charIndex < string2Length; charIndex++) {
-			differ.feedRight(Character.valueOf(string2.charAt(charIndex)));
-		}
-		differ.run(true);
-		return differ.toResult();
+	/**
+	 * Diffs two strings token by token.
+	 * <p>
+	 * The positions of the resulting entries refer to the token indices within the 1st string.
+	 * </p>
+	 *
+	 * @param string1 the 1st string to diff.
+	 * @param string2 the 2nd string to diff.
+	 * @param tokenizer the {@linkplain Tokenizer} to use for splitting the strings into tokens.
+	 * @return the diff result.
+	 */
+	public static DiffResult<String> tokens(String string1, String string2, Tokenizer tokenizer) {
+		return tokens(string1, string2, tokenizer, DiffOptions.defaults());
+	}
+
+	/**
+	 * Diffs two strings token by token.
+	 * <p>
+	 * The positions of the resulting entries refer to the token indices within the 1st string. The strings are always
+	 * diffed as a whole. Hence the window sizes of the given options are ignored.
+	 * </p>
+	 *
+	 * @param string1 the 1st string to diff.
+	 * @param string2 the 2nd string to diff.
+	 * @param tokenizer the {@linkplain Tokenizer} to use for splitting the strings into tokens.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff result.
+	 */
+	public static DiffResult<String> tokens(String string1, String string2, Tokenizer tokenizer,
+			DiffOptions options) {
+		return DiffEngine.current().tokens(string1, string2, tokenizer, options);
+	}
+
+	/**
+	 * Diffs two sequences element by element.
+	 * <p>
+	 * Elements are compared via {@linkplain Object#equals(Object)}.
+	 * </p>
+	 *
+	 * @param <T> actual type of the diffed elements.
+	 * @param sequence1 the 1st sequence to diff.
+	 * @param sequence2 the 2nd sequence to diff.
+	 * @return the diff result.
+	 * @throws NullPointerException if one of the sequences contains a {@code null} element.
+	 */
+	public static <T> DiffResult<T> sequences(List<T> sequence1, List<T> sequence2) {
+		return sequences(sequence1, sequence2, Equivalence.natural());
+	}
+
+	/**
+	 * Diffs two sequences element by element.
+	 *
+	 * @param <T> actual type of the diffed elements.
+	 * @param sequence1 the 1st sequence to diff.
+	 * @param sequence2 the 2nd sequence to diff.
+	 * @param equivalence the {@linkplain Equivalence} to use for element comparison.
+	 * @return the diff result.
+	 * @throws NullPointerException if one of the sequences contains a {@code null} element.
+	 */
+	public static <T> DiffResult<T> sequences(List<T> sequence1, List<T> sequence2,
+			Equivalence<? super T> equivalence) {
+		return sequences(sequence1, sequence2, equivalence, DiffOptions.defaults());
+	}
+
+	/**
+	 * Diffs two sequences element by element.
+	 * <p>
+	 * The elements are hashed into {@code int} ids once before diffing, so the diff core only compares ids. The
+	 * sequences are always diffed as a whole. Hence the window sizes of the given options are ignored.
+	 * </p>
+	 *
+	 * @param <T> actual type of the diffed elements.
+	 * @param sequence1 the 1st sequence to diff.
+	 * @param sequence2 the 2nd sequence to diff.
+	 * @param equivalence the {@linkplain Equivalence} to use for element comparison.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff result.
+	 * @throws NullPointerException if one of the sequences contains a {@code null} element.
+	 */
+	public static <T> DiffResult<T> sequences(List<T> sequence1, List<T> sequence2,
+			Equivalence<? super T> equivalence, DiffOptions options) {
+		return DiffEngine.current().sequences(sequence1, sequence2, equivalence, options);
 	}
 
 	/**
@@ -88,18 +184,238 @@ public final class Diff {
 	 * @throws IOException if an I/O error occurs.
 	 */
 	public static DiffResult<String> lines(File file1, File file2, Charset cs) throws IOException {
-		DiffResult<String> result;
+		return lines(file1, file2, cs, DiffOptions.defaults());
+	}
 
-		try (BufferedReader reader1 = newReader(file1, cs); BufferedReader reader2 = newReader(file2, cs)) {
-			result = lines(reader1, reader2);
+	/**
+	 * Diffs two files line by line
+	 *
+	 * @param file1 the 1st file to diff.
+	 * @param file2 the 2nd file to diff.
+	 * @param cs the {@linkplain Charset} to use for file decoding.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff result.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static DiffResult<String> lines(File file1, File file2, Charset cs, DiffOptions options)
+			throws IOException {
+		return DiffEngine.current().lines(file1, file2, cs, options);
+	}
+
+	/**
+	 * Diffs two files line by line collecting the diff statistics only.
+	 * <p>
+	 * This function assumes the files are UTF-8 encoded.
+	 * </p>
+	 *
+	 * @param file1 the 1st file to diff.
+	 * @param file2 the 2nd file to diff.
+	 * @return the diff statistics.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static DiffStats lineStats(File file1, File file2) throws IOException {
+		return lineStats(file1, file2, StandardCharsets.UTF_8, DiffOptions.defaults());
+	}
+
+	/**
+	 * Diffs two files line by line collecting the diff statistics only.
+	 * <p>
+	 * No diffed line is retained. Hence the memory needed is bounded by the diff window regardless of the number of
+	 * differences. Use {@linkplain DiffOptions#streaming(int)} to get complete statistics for arbitrary inputs.
+	 * </p>
+	 *
+	 * @param file1 the 1st file to diff.
+	 * @param file2 the 2nd file to diff.
+	 * @param cs the {@linkplain Charset} to use for file decoding.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff statistics.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static DiffStats lineStats(File file1, File file2, Charset cs, DiffOptions options) throws IOException {
+		return DiffEngine.current().lineStats(file1, file2, cs, options);
+	}
+
+	static ByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File too large to be mapped: " + file);
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
 		}
-		return result;
 	}
 
-	private static BufferedReader newReader(File file, Charset cs) throws IOException {
+	static boolean isSameContent(File file1, File file2) throws IOException {
+		boolean sameContent;
+
+		try (FileChannel channel1 = FileChannel.open(file1.toPath(), StandardOpenOption.READ);
+				FileChannel channel2 = FileChannel.open(file2.toPath(), StandardOpenOption.READ)) {
+			sameContent = channel1.size() == channel2.size();
+
+			ByteBuffer buffer1 = ByteBuffer.allocate(COMPARE_BUFFER_SIZE);
+			ByteBuffer buffer2 = ByteBuffer.allocate(COMPARE_BUFFER_SIZE);
+			int read1 = 1;
+
+			while (sameContent && read1 > 0) {
+				read1 = readFully(channel1, buffer1.clear());
+
+				int read2 = readFully(channel2, buffer2.clear());
+
+				sameContent = read1 == read2 && buffer1.flip().equals(buffer2.flip());
+			}
+		}
+		return sameContent;
+	}
+
+	static int readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		int total = 0;
+		int read;
+
+		while (buffer.hasRemaining() && (read = channel.read(buffer)) >= 0) {
+			total += read;
+		}
+		return total;
+	}
+
+	static BufferedReader newReader(File file, Charset cs) throws IOException {
 		return new BufferedReader(new InputStreamReader(new FileInputStream(file), cs));
 	}
 
+	/**
+	 * Diffs two directory trees file by file.
+	 * <p>
+	 * This function assumes the text files are UTF-8 encoded.
+	 * </p>
+	 *
+	 * @param root1 the root of the 1st tree to diff.
+	 * @param root2 the root of the 2nd tree to diff.
+	 * @return the diff result.
+	 * @throws IOException if an I/O error occurs.
+	 * @see #trees(Path, Path, Charset, DiffOptions, Executor)
+	 */
+	public static TreeDiffResult trees(Path root1, Path root2) throws IOException {
+		return trees(root1, root2, StandardCharsets.UTF_8, DiffOptions.defaults());
+	}
+
+	/**
+	 * Diffs two directory trees file by file.
+	 * <p>
+	 * The work is spread over a temporary thread pool bounded by the number of available processors.
+	 * </p>
+	 *
+	 * @param root1 the root of the 1st tree to diff.
+	 * @param root2 the root of the 2nd tree to diff.
+	 * @param cs the {@linkplain Charset} to use for text file decoding.
+	 * @param options the {@linkplain DiffOptions} to use for text file diffing.
+	 * @return the diff result.
+	 * @throws IOException if an I/O error occurs.
+	 * @see #trees(Path, Path, Charset, DiffOptions, Executor)
+	 */
+	public static TreeDiffResult trees(Path root1, Path root2, Charset cs, DiffOptions options) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+				BatchDiffer.daemonThreads());
+
+		TreeDiffResult result;
+
+		try {
+			result = trees(root1, root2, cs, options, executor);
+		} finally {
+			executor.shutdownNow();
+		}
+		return result;
+	}
+
+	/**
+	 * Diffs two directory trees file by file.
+	 * <p>
+	 * Both trees are walked concurrently and every file existing in both trees is compared in a separate task executed
+	 * by the given {@linkplain Executor}. Only files whose content differs are diffed; text files line by line (see
+	 * {@linkplain #lines(File, File, Charset, DiffOptions)}) and binary files (files containing NUL bytes) byte by byte
+	 * (see {@linkplain #bytes(Path, Path)}). Only regular files are considered; empty directories are ignored.
+	 * </p>
+	 *
+	 * @param root1 the root of the 1st tree to diff.
+	 * @param root2 the root of the 2nd tree to diff.
+	 * @param cs the {@linkplain Charset} to use for text file decoding.
+	 * @param options the {@linkplain DiffOptions} to use for text file diffing.
+	 * @param executor the {@linkplain Executor} to use for walking, comparing and diffing.
+	 * @return the diff result.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static TreeDiffResult trees(Path root1, Path root2, Charset cs, DiffOptions options, Executor executor)
+			throws IOException {
+		return new TreeDiffer(root1, root2, cs, options, executor).run();
+	}
+
+	/**
+	 * Diffs multiple file pairs line by line.
+	 * <p>
+	 * This function assumes the files are UTF-8 encoded. The file pairs are diffed concurrently using a shared default
+	 * executor (see {@linkplain #newBatchExecutor()}). The shared executor is created on first use and never shut
+	 * down. As it only runs daemon threads, it does not prevent the JVM from exiting. Use
+	 * {@linkplain #batchLineStream(Collection, Charset, DiffOptions, Executor)} to control the executor's lifecycle.
+	 * </p>
+	 *
+	 * @param pairs the file pairs to diff.
+	 * @return the diff results in the order of their completion.
+	 */
+	public static Stream<FileDiffResult> batchLineStream(Collection<FileDiffPair> pairs) {
+		return batchLineStream(pairs, StandardCharsets.UTF_8, DiffOptions.defaults(), BatchDiffer.defaultExecutor());
+	}
+
+	/**
+	 * Diffs multiple file pairs line by line.
+	 * <p>
+	 * Every file pair is diffed in a separate task executed by the given {@linkplain Executor}. The returned stream
+	 * provides the results in the order of their completion. Hence failures can be reported as soon as they are found
+	 * while the remaining file pairs are still being diffed. Consuming the stream blocks until the next result is
+	 * available.
+	 * </p>
+	 *
+	 * @param pairs the file pairs to diff.
+	 * @param cs the {@linkplain Charset} to use for file decoding.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @param executor the {@linkplain Executor} to use for diffing.
+	 * @return the diff results in the order of their completion.
+	 */
+	public static Stream<FileDiffResult> batchLineStream(Collection<FileDiffPair> pairs, Charset cs,
+			DiffOptions options, Executor executor) {
+		return BatchDiffer.stream(pairs, cs, options, executor);
+	}
+
+	/**
+	 * Diffs multiple file pairs line by line.
+	 * <p>
+	 * Every file pair is diffed in a separate task executed by the given {@linkplain Executor}. I/O errors are captured
+	 * in the individual {@linkplain FileDiffResult} (see {@linkplain FileDiffResult#result()}).
+	 * </p>
+	 *
+	 * @param pairs the file pairs to diff.
+	 * @param cs the {@linkplain Charset} to use for file decoding.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @param executor the {@linkplain Executor} to use for diffing.
+	 * @return the futures providing the diff results (in the order of the submitted file pairs).
+	 */
+	public static List<CompletableFuture<FileDiffResult>> batchLines(Collection<FileDiffPair> pairs, Charset cs,
+			DiffOptions options, Executor executor) {
+		return BatchDiffer.submit(pairs, cs, options, executor);
+	}
+
+	/**
+	 * Creates a new {@linkplain ExecutorService} suitable for batch diff operations.
+	 * <p>
+	 * If the runtime supports virtual threads, the returned executor runs every task in its own virtual thread.
+	 * Otherwise a bounded thread pool sized to twice the number of available processors is returned (allowing I/O
+	 * and diffing to overlap). The caller is responsible for shutting down the returned executor.
+	 * </p>
+	 *
+	 * @return the created {@linkplain ExecutorService}.
+	 */
+	public static ExecutorService newBatchExecutor() {
+		return BatchDiffer.newExecutor();
+	}
+
 	/**
 	 * Diffs two strings line by line
 	 *
@@ -108,17 +424,22 @@ public final class Diff {
 	 * @return the diff result.
 	 */
 	public static DiffResult<String> lines(String string1, String string2) {
-		DiffResult<String> result;
+		return lines(string1, string2, DiffOptions.defaults());
+	}
 
-		try (BufferedReader reader1 = newReader(string1); BufferedReader reader2 = newReader(string2)) {
-			result = lines(reader1, reader2);
-		} catch (IOException e) {
-			throw Exceptions.toRuntime(e);
-		}
-		return result;
+	/**
+	 * Diffs two strings line by line
+	 *
+	 * @param string1 the 1st string to diff.
+	 * @param string2 the 2nd string to diff.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff result.
+	 */
+	public static DiffResult<String> lines(String string1, String string2, DiffOptions options) {
+		return DiffEngine.current().lines(string1, string2, options);
 	}
 
-	private static BufferedReader newReader(String string) {
+	static BufferedReader newReader(String string) {
 		return new BufferedReader(new StringReader(string));
 	}
 
@@ -131,31 +452,157 @@ public final class Diff {
 	 * @throws IOException if an I/O error occurs.
 	 */
 	public static DiffResult<String> lines(BufferedReader reader1, BufferedReader reader2) throws IOException {
-		Differ<String> differ = Differ.lineDiffer(TEXT_DIFFER_RANGE);
-		String reader1Line = reader1.readLine();
-		String reader2Line = reader2.readLine();
-
-		while (differ.isRestrained() && (reader1Line != null || reader2Line != null)) {
-			while (reader1Line != null) {
-				String feedLine = reader1Line;
-
-				reader1Line = reader1.readLine();
-				if (!differ.feedLeft(feedLine)) {
-					break;
-				}
-			}
-			while (reader2Line != null) {
-				String feedLine = reader2Line;
+		return lines(reader1, reader2, DiffOptions.defaults());
+	}
 
-				reader2Line = reader2.readLine();
-				if (!differ.feedRight(feedLine)) {
-					break;
-				}
-			}
-			differ.run(false);
+	/**
+	 * Diffs two {@linkplain BufferedReader} inputs line by line
+	 *
+	 * @param reader1 the 1st input lines to diff.
+	 * @param reader2 the 2nd input lines to diff.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff result.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static DiffResult<String> lines(BufferedReader reader1, BufferedReader reader2, DiffOptions options)
+			throws IOException {
+		return DiffEngine.current().lines(reader1, reader2, options);
+	}
+
+	/**
+	 * Diffs two {@linkplain BufferedReader} inputs line by line collecting the diff statistics only.
+	 * <p>
+	 * No diffed line is retained. Hence the memory needed is bounded by the diff window regardless of the number of
+	 * differences.
+	 * </p>
+	 *
+	 * @param reader1 the 1st input lines to diff.
+	 * @param reader2 the 2nd input lines to diff.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff statistics.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static DiffStats lineStats(BufferedReader reader1, BufferedReader reader2, DiffOptions options)
+			throws IOException {
+		return DiffEngine.current().lineStats(reader1, reader2, options);
+	}
+
+	/**
+	 * Diffs two {@linkplain BufferedReader} inputs line by line and passes the resulting entries to a
+	 * {@linkplain DiffListener}.
+	 * <p>
+	 * The entries are passed to the listener as soon as the window containing them has been diffed. Hence only the
+	 * current diff window is kept in memory. A listener may signal an I/O error by throwing an
+	 * {@linkplain java.io.UncheckedIOException}, which is re-thrown as the causing {@linkplain IOException}.
+	 * </p>
+	 *
+	 * @param reader1 the 1st input lines to diff.
+	 * @param reader2 the 2nd input lines to diff.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @param listener the {@linkplain DiffListener} to pass the entries to.
+	 * @return {@code true} if all diffs have been reported. {@code false} if the number diffs exceeded the diff range
+	 * (see {@linkplain DiffResult#isRestrained()}).
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static boolean lines(BufferedReader reader1, BufferedReader reader2, DiffOptions options,
+			DiffListener<String> listener) throws IOException {
+		return DiffEngine.current().lines(reader1, reader2, options, listener);
+	}
+
+	/**
+	 * Diffs two {@linkplain BufferedReader} inputs line by line lazily.
+	 * <p>
+	 * The inputs are read and diffed window by window while the returned {@linkplain Stream} is consumed. Hence the
+	 * readers must not be closed before the stream has been consumed. I/O errors occurring during stream consumption
+	 * are re-thrown as {@linkplain RuntimeException}s.
+	 * </p>
+	 *
+	 * @param reader1 the 1st input lines to diff.
+	 * @param reader2 the 2nd input lines to diff.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the {@linkplain Stream} of diff entries.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static Stream<DiffEntry<String>> lineStream(BufferedReader reader1, BufferedReader reader2,
+			DiffOptions options) throws IOException {
+		return StreamSupport.stream(new ReaderLineFeed(reader1, reader2, options, new DiffBuffers()).spliterator(),
+				false);
+	}
+
+	/**
+	 * Diffs two files line by line and writes the result in unified diff format.
+	 * <p>
+	 * The files are diffed window by window and every hunk is written as soon as it is complete. Context lines are read
+	 * lazily from the 1st file. Hence memory usage is bounded by the diff window and the current hunk. A missing line
+	 * terminator at the end of a file is not marked (see {@linkplain UnifiedDiffWriter}).
+	 * </p>
+	 *
+	 * @param file1 the 1st file to diff.
+	 * @param file2 the 2nd file to diff.
+	 * @param cs the {@linkplain Charset} to use for file decoding.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @param contextLines the number of context lines to write around every change.
+	 * @param out the {@linkplain Appendable} to write to.
+	 * @return {@code true} if all diffs have been written. {@code false} if the number diffs exceeded the diff range
+	 * (see {@linkplain DiffResult#isRestrained()}).
+	 * @throws IOException if an I/O error occurs.
+	 * @see UnifiedDiffWriter
+	 */
+	public static boolean unifiedLines(File file1, File file2, Charset cs, DiffOptions options, int contextLines,
+			Appendable out) throws IOException {
+		boolean restrained;
+
+		try (BufferedReader reader1 = newReader(file1, cs); BufferedReader reader2 = newReader(file2, cs);
+				BufferedReader source = newReader(file1, cs)) {
+			UnifiedDiffWriter writer = new UnifiedDiffWriter(out, source, contextLines);
+
+			writer.writeHeader(file1.getPath(), file2.getPath());
+			restrained = lines(reader1, reader2, options, writer);
+			writer.finish();
 		}
-		differ.run(true);
-		return differ.toResult();
+		return restrained;
+	}
+
+	/**
+	 * Diffs two files byte by byte.
+	 * <p>
+	 * The files are memory mapped and diffed via rolling hash block matching. The resulting entries describe the
+	 * deleted and inserted byte ranges. The positions of the entries refer to the byte offsets within the 1st file.
+	 * </p>
+	 *
+	 * @param file1 the 1st file to diff.
+	 * @param file2 the 2nd file to diff.
+	 * @return the diff result.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static DiffResult<ByteRange> bytes(Path file1, Path file2) throws IOException {
+		return bytes(map(file1), map(file2));
+	}
+
+	/**
+	 * Diffs two byte arrays byte by byte.
+	 * <p>
+	 * The arrays are diffed via rolling hash block matching. The resulting entries describe the deleted and inserted
+	 * byte ranges. The positions of the entries refer to the offsets within the 1st array.
+	 * </p>
+	 *
+	 * @param bytes1 the 1st byte array to diff.
+	 * @param bytes2 the 2nd byte array to diff.
+	 * @return the diff result.
+	 */
+	public static DiffResult<ByteRange> bytes(byte[] bytes1, byte[] bytes2) {
+		return bytes(ByteBuffer.wrap(bytes1), ByteBuffer.wrap(bytes2));
+	}
+
+	private static DiffResult<ByteRange> bytes(ByteBuffer buffer1, ByteBuffer buffer2) {
+		DiffResult<ByteRange> result;
+
+		if (buffer1.equals(buffer2)) {
+			result = DiffResult.byteMatch();
+		} else {
+			result = new ByteDiffer(buffer1, buffer2).run();
+		}
+		return result;
 	}
 
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+/**
+ * The algorithms available for diffing sequences of elements.
+ *
+ * @see DiffOptions#withAlgorithm(DiffAlgorithm)
+ */
+public enum DiffAlgorithm {
+
+	/**
+	 * Myers' O(ND) middle snake algorithm.
+	 * <p>
+	 * Always yields a minimal diff.
+	 * </p>
+	 */
+	MYERS,
+
+	/**
+	 * Patience diff.
+	 * <p>
+	 * Anchors on the elements occurring exactly once in both inputs and only diffs the regions in between. Regions
+	 * without any such element are diffed via {@linkplain #MYERS}.
+	 * </p>
+	 */
+	PATIENCE,
+
+	/**
+	 * Histogram diff.
+	 * <p>
+	 * Anchors on the longest common region containing the least frequent elements and only diffs the regions in
+	 * between. Regions without any such common region are diffed via {@linkplain #MYERS}.
+	 * </p>
+	 */
+	HISTOGRAM
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Growable buffers shared by subsequent {@linkplain Differ} runs.
+ * <p>
+ * Buffers are only grown while in use, so after warm-up no further buffer allocation takes place. The returned arrays
+ * may be larger than requested and may contain data of previous runs. Growing a buffer retains its content. Buffers
+ * exceeding {@linkplain #MAX_RETAINED_SIZE} are dropped on {@linkplain #release()}, so a single large diff operation
+ * does not pin its buffers for the lifetime of the owning thread.
+ * </p>
+ */
+final class DiffBuffers {
+
+	/**
+	 * The maximum number of elements a buffer may have to be retained across diff operations.
+	 */
+	static final int MAX_RETAINED_SIZE = 1 << 16;
+
+	static final int FORWARD_TRACE = 0;
+	static final int REVERSE_TRACE = 1;
+	static final int LEFT_IDS = 2;
+	static final int RIGHT_IDS = 3;
+	static final int WORK_STACK = 4;
+	static final int LEFT_STARTS = 5;
+	static final int RIGHT_STARTS = 6;
+	static final int LEFT_ENDS = 7;
+	static final int RIGHT_ENDS = 8;
+	static final int LEFT_TOKENS = 9;
+	static final int RIGHT_TOKENS = 10;
+	static final int INTERN_TABLE = 11;
+	static final int INTERN_HASHES = 12;
+	static final int INTERN_REFS = 13;
+
+	static final int LEFT_CHARS = 0;
+	static final int RIGHT_CHARS = 1;
+
+	static final int LEFT_VALUES = 0;
+	static final int RIGHT_VALUES = 1;
+	static final int LEFT_KEYS = 2;
+	static final int RIGHT_KEYS = 3;
+
+	private final int[][] ints = new int[14][0];
+	private final char[][] chars = new char[2][0];
+	private final @Nullable Object[][] objects = new @Nullable Object[4][0];
+	private @Nullable Interner<?> interner = null;
+
+	/**
+	 * Gets an {@code int} buffer.
+	 *
+	 * @param slot the buffer slot to get.
+	 * @param size the minimum size of the buffer.
+	 * @return the buffer.
+	 */
+	public int[] ints(int slot, int size) {
+		if (this.ints[slot].length < size) {
+			this.ints[slot] = Arrays.copyOf(this.ints[slot], size);
+		}
+		return this.ints[slot];
+	}
+
+	/**
+	 * Gets a {@code char} buffer.
+	 *
+	 * @param slot the buffer slot to get.
+	 * @param size the minimum size of the buffer.
+	 * @return the buffer.
+	 */
+	public char[] chars(int slot, int size) {
+		if (this.chars[slot].length < size) {
+			this.chars[slot] = Arrays.copyOf(this.chars[slot], size);
+		}
+		return this.chars[slot];
+	}
+
+	/**
+	 * Gets an {@linkplain Object} buffer.
+	 * <p>
+	 * {@linkplain Object} buffers are cleared by {@linkplain #release()}.
+	 * </p>
+	 *
+	 * @param slot the buffer slot to get.
+	 * @param size the minimum size of the buffer.
+	 * @return the buffer.
+	 */
+	public @Nullable Object[] objects(int slot, int size) {
+		if (this.objects[slot].length < size) {
+			this.objects[slot] = Arrays.copyOf(this.objects[slot], size);
+		}
+		return this.objects[slot];
+	}
+
+	/**
+	 * Gets an empty {@linkplain Interner}.
+	 *
+	 * @param <T> actual type of the interned values.
+	 * @param equivalence the {@linkplain Equivalence} to use.
+	 * @return the {@linkplain Interner}.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Interner<T> interner(Equivalence<? super T> equivalence) {
+		Interner<T> reusedInterner = (Interner<T>) this.interner;
+
+		if (reusedInterner == null) {
+			reusedInterner = new Interner<>(equivalence);
+			this.interner = reusedInterner;
+		} else {
+			reusedInterner.reset(equivalence);
+		}
+		return reusedInterner;
+	}
+
+	/**
+	 * Releases all value references held by the buffers and drops all buffers exceeding
+	 * {@linkplain #MAX_RETAINED_SIZE}.
+	 */
+	public void release() {
+		for (int slot = 0; slot < this.ints.length; slot++) {
+			if (this.ints[slot].length > MAX_RETAINED_SIZE) {
+				this.ints[slot] = new int[0];
+			}
+		}
+		for (int slot = 0; slot < this.chars.length; slot++) {
+			if (this.chars[slot].length > MAX_RETAINED_SIZE) {
+				this.chars[slot] = new char[0];
+			}
+		}
+		for (int slot = 0; slot < this.objects.length; slot++) {
+			if (this.objects[slot].length > MAX_RETAINED_SIZE) {
+				this.objects[slot] = new @Nullable Object[0];
+			} else {
+				Arrays.fill(this.objects[slot], null);
+			}
+		}
+
+		Interner<?> releasedInterner = this.interner;
+
+		if (releasedInterner != null) {
+			if (releasedInterner.capacity() > MAX_RETAINED_SIZE) {
+				this.interner = null;
+			} else {
+				releasedInterner.reset();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.carne.util.Check;
+import de.carne.util.Exceptions;
+
+/**
+ * Content-addressed cache for line diff results.
+ * <p>
+ * Diff results are keyed by the content hashes of both inputs plus the diff options affecting the result. Hence
+ * repeatedly diffing the same content (e.g. a generated file against its golden file within parameterized tests) only
+ * hashes the inputs instead of diffing them again. Cached results are kept in an in-memory LRU tier and, if enabled, in
+ * an on-disk tier which is shared across JVMs (e.g. forked test JVMs). The on-disk tier stores the results using the
+ * {@linkplain DiffResultCodec} encoding.
+ * </p>
+ * <p>
+ * Approximate diff results (see {@linkplain DiffResult#isApproximate()}) are never cached. Cache instances are
+ * thread-safe.
+ * </p>
+ */
+public final class DiffCache {
+
+	/**
+	 * The default number of diff results kept in memory.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 256;
+
+	/**
+	 * The default on-disk cache directory (relative to the current working directory, which is the project directory
+	 * during a build).
+	 */
+	public static final Path DEFAULT_DIRECTORY = Paths.get("build", "tmp", "diff-cache");
+
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	private static final int HASH_BUFFER_SIZE = 64 * 1024;
+	private static final String FILE_SUFFIX = ".diff";
+
+	private final LruMap<String, DiffResult<String>> entries;
+	private final @Nullable Path directory;
+
+	private DiffCache(int maxEntries, @Nullable Path directory) {
+		this.entries = new LruMap<>(maxEntries);
+		this.directory = directory;
+	}
+
+	private static final class SharedCacheHolder {
+
+		static final DiffCache CACHE = memory(DEFAULT_MAX_ENTRIES);
+
+		private SharedCacheHolder() {
+			// Prevent instantiation
+		}
+
+	}
+
+	/**
+	 * Gets the JVM-wide shared in-memory cache.
+	 *
+	 * @return the JVM-wide shared in-memory cache.
+	 */
+	public static DiffCache shared() {
+		return SharedCacheHolder.CACHE;
+	}
+
+	/**
+	 * Creates a new in-memory cache.
+	 *
+	 * @param maxEntries the maximum number of diff results to keep in memory.
+	 * @return the created cache.
+	 */
+	public static DiffCache memory(int maxEntries) {
+		Check.isTrue(maxEntries >= 0);
+
+		return new DiffCache(maxEntries, null);
+	}
+
+	/**
+	 * Creates a new cache backed by the default on-disk cache directory (see {@linkplain #DEFAULT_DIRECTORY}).
+	 *
+	 * @param maxEntries the maximum number of diff results to keep in memory.
+	 * @return the created cache.
+	 */
+	public static DiffCache persistent(int maxEntries) {
+		return persistent(maxEntries, DEFAULT_DIRECTORY);
+	}
+
+	/**
+	 * Creates a new cache backed by an on-disk cache directory.
+	 * <p>
+	 * The directory is created on demand. Caches of different JVMs may share the same directory.
+	 * </p>
+	 *
+	 * @param maxEntries the maximum number of diff results to keep in memory.
+	 * @param directory the on-disk cache directory to use.
+	 * @return the created cache.
+	 */
+	public static DiffCache persistent(int maxEntries, Path directory) {
+		Check.isTrue(maxEntries >= 0);
+
+		return new DiffCache(maxEntries, directory);
+	}
+
+	/**
+	 * Diffs two files line by line using the cache.
+	 * <p>
+	 * This function assumes the files are UTF-8 encoded.
+	 * </p>
+	 *
+	 * @param file1 the 1st file to diff.
+	 * @param file2 the 2nd file to diff.
+	 * @return the diff result.
+	 * @throws IOException if an I/O error occurs.
+	 * @see Diff#lines(File, File)
+	 */
+	public DiffResult<String> lines(File file1, File file2) throws IOException {
+		return lines(file1, file2, StandardCharsets.UTF_8, DiffOptions.defaults());
+	}
+
+	/**
+	 * Diffs two files line by line using the cache.
+	 * <p>
+	 * The cache key is derived from the files' content. Hence on a cache miss the files are read twice (once for
+	 * hashing and once for diffing).
+	 * </p>
+	 *
+	 * @param file1 the 1st file to diff.
+	 * @param file2 the 2nd file to diff.
+	 * @param cs the {@linkplain Charset} to use for file decoding.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff result.
+	 * @throws IOException if an I/O error occurs.
+	 * @see Diff#lines(File, File, Charset, DiffOptions)
+	 */
+	public DiffResult<String> lines(File file1, File file2, Charset cs, DiffOptions options) throws IOException {
+		MessageDigest digest = newDigest();
+		byte[] hash1 = hash(digest, file1.toPath());
+		byte[] hash2 = hash(digest, file2.toPath());
+		String key = key(digest, "lines:" + cs.name(), options, hash1, hash2);
+		DiffResult<String> result = lookup(key);
+
+		if (result == null) {
+			result = Diff.lines(file1, file2, cs, options);
+			store(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Diffs two strings line by line using the cache.
+	 *
+	 * @param string1 the 1st string to diff.
+	 * @param string2 the 2nd string to diff.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff result.
+	 * @see Diff#lines(String, String, DiffOptions)
+	 */
+	public DiffResult<String> lines(String string1, String string2, DiffOptions options) {
+		MessageDigest digest = newDigest();
+		byte[] hash1 = hash(digest, string1);
+		byte[] hash2 = hash(digest, string2);
+		String key = key(digest, "lines", options, hash1, hash2);
+		DiffResult<String> result = lookup(key);
+
+		if (result == null) {
+			result = Diff.lines(string1, string2, options);
+			store(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Discards all diff results kept in memory.
+	 * <p>
+	 * The on-disk tier (if any) is not affected.
+	 * </p>
+	 */
+	public void clear() {
+		synchronized (this.entries) {
+			this.entries.clear();
+		}
+	}
+
+	private @Nullable DiffResult<String> lookup(String key) {
+		DiffResult<String> result;
+
+		synchronized (this.entries) {
+			result = this.entries.get(key);
+		}
+		if (result == null && this.directory != null) {
+			result = readEntry(this.directory.resolve(key + FILE_SUFFIX));
+			if (result != null) {
+				synchronized (this.entries) {
+					this.entries.put(key, result);
+				}
+			}
+		}
+		return result;
+	}
+
+	private void store(String key, DiffResult<String> result) {
+		if (!result.isApproximate()) {
+			synchronized (this.entries) {
+				this.entries.put(key, result);
+			}
+			if (this.directory != null) {
+				writeEntry(this.directory, key, result);
+			}
+		}
+	}
+
+	private static @Nullable DiffResult<String> readEntry(Path file) {
+		DiffResult<String> result = null;
+
+		if (Files.isRegularFile(file)) {
+			try (InputStream stream = Files.newInputStream(file)) {
+				result = DiffResultCodec.strings().read(stream);
+			} catch (IOException e) {
+				// A damaged or outdated entry is treated like a missing one
+				Exceptions.ignore(e);
+			}
+		}
+		return result;
+	}
+
+	private static void writeEntry(Path directory, String key, DiffResult<String> result) {
+		try {
+			Files.createDirectories(directory);
+
+			// Write to a temporary file first, so other JVMs never see a partial entry
+			Path tempFile = Files.createTempFile(directory, key, ".tmp");
+
+			try {
+				try (OutputStream stream = Files.newOutputStream(tempFile)) {
+					DiffResultCodec.strings().write(result, stream);
+				}
+				Files.move(tempFile, directory.resolve(key + FILE_SUFFIX), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tempFile);
+			}
+		} catch (IOException e) {
+			// A failing on-disk tier only affects caching, not the diff result
+			Exceptions.warn(e);
+		}
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	private static byte[] hash(MessageDigest digest, Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		}
+		return digest.digest();
+	}
+
+	private static byte[] hash(MessageDigest digest, String string) {
+		// Hash the UTF-16 chars directly, as encoding would map unpaired surrogates to the same replacement
+		int length = string.length();
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length * 2L, HASH_BUFFER_SIZE));
+		CharBuffer chars = buffer.asCharBuffer();
+		int start = 0;
+
+		while (start < length) {
+			int end = Math.min(start + chars.capacity(), length);
+
+			chars.clear();
+			chars.put(string, start, end);
+			buffer.clear().limit(chars.position() << 1);
+			digest.update(buffer);
+			start = end;
+		}
+		return digest.digest();
+	}
+
+	private static String key(MessageDigest digest, String operation, DiffOptions options, byte[] hash1,
+			byte[] hash2) {
+		digest.update(operation.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(options.fingerprint().getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(hash1);
+		digest.update(hash2);
+
+		byte[] keyHash = digest.digest();
+		StringBuilder key = new StringBuilder(keyHash.length * 2);
+
+		for (byte keyByte : keyHash) {
+			key.append(Character.forDigit((keyByte >> 4) & 0xf, 16)).append(Character.forDigit(keyByte & 0xf, 16));
+		}
+		return key.toString();
+	}
+
+	private static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int maxEntries;
+
+		LruMap(int maxEntries) {
+			super(16, 0.75f, true);
+			this.maxEntries = maxEntries;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > this.maxEntries;
+		}
+
+	}
+
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.carne.util.Exceptions;
+
+/**
+ * Reusable diff engine.
+ * <p>
+ * An engine keeps its internal buffers (trace buffers, element buffers and intern tables) across diff operations. Once
+ * the buffers have grown to the needed size, a diff operation only allocates its result. Buffers grown beyond a fixed
+ * limit by a single large diff operation are dropped again after that operation. The static functions of the
+ * {@linkplain Diff} class use the calling thread's default engine (see {@linkplain #current()}).
+ * </p>
+ * <p>
+ * Engine instances are not thread-safe. Nested diff operations (e.g. issued by a {@linkplain DiffListener}) are
+ * supported, but use temporary buffers.
+ * </p>
+ */
+public final class DiffEngine {
+
+	private static final ThreadLocal<DiffEngine> CURRENT = ThreadLocal.withInitial(DiffEngine::new);
+
+	private DiffBuffers buffers = new DiffBuffers();
+	private boolean busy = false;
+
+	/**
+	 * Gets the calling thread's default engine.
+	 *
+	 * @return the calling thread's default engine.
+	 */
+	public static DiffEngine current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Discards the buffers accumulated so far.
+	 * <p>
+	 * Call this to free up memory after diffing large inputs. The buffers can only be discarded while no diff operation
+	 * is running (e.g. not from within a {@linkplain DiffListener}).
+	 * </p>
+	 *
+	 * @throws IllegalStateException if a diff operation is running.
+	 */
+	public void reset() {
+		if (this.busy) {
+			throw new IllegalStateException("Cannot reset engine while a diff operation is running");
+		}
+		this.buffers = new DiffBuffers();
+	}
+
+	/**
+	 * Diffs two strings character by character.
+	 *
+	 * @param string1 the 1st string to diff.
+	 * @param string2 the 2nd string to diff.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff result.
+	 * @see Diff#characters(String, String, DiffOptions)
+	 */
+	public DiffResult<Character> characters(String string1, String string2, DiffOptions options) {
+		DiffResult<Character> result;
+
+		if (string1.equals(string2)) {
+			result = DiffResult.characterMatch();
+		} else {
+			DiffBuffers acquiredBuffers = acquire();
+
+			try {
+				CharDiffer differ = Differ.characterDiffer(Math.max(string1.length(), string2.length()), options,
+						acquiredBuffers);
+
+				differ.feedLeft(string1);
+				differ.feedRight(string2);
+				differ.run(true);
+				result = differ.toResult();
+			} finally {
+				release(acquiredBuffers);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Diffs two strings token by token.
+	 *
+	 * @param string1 the 1st string to diff.
+	 * @param string2 the 2nd string to diff.
+	 * @param tokenizer the {@linkplain Tokenizer} to use for splitting the strings into tokens.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff result.
+	 * @see Diff#tokens(String, String, Tokenizer, DiffOptions)
+	 */
+	public DiffResult<String> tokens(String string1, String string2, Tokenizer tokenizer, DiffOptions options) {
+		DiffResult<String> result;
+
+		if (string1.equals(string2)) {
+			result = DiffResult.tokenMatch();
+		} else {
+			DiffBuffers acquiredBuffers = acquire();
+
+			try {
+				TokenDiffer differ = TokenDiffer.create(options, acquiredBuffers, string1, string2, tokenizer);
+
+				differ.feed();
+				differ.run(true);
+				result = differ.toResult();
+			} finally {
+				release(acquiredBuffers);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Diffs two sequences element by element.
+	 *
+	 * @param <T> actual type of the diffed elements.
+	 * @param sequence1 the 1st sequence to diff.
+	 * @param sequence2 the 2nd sequence to diff.
+	 * @param equivalence the {@linkplain Equivalence} to use for element comparison.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff result.
+	 * @throws NullPointerException if one of the sequences contains a {@code null} element.
+	 * @see Diff#sequences(List, List, Equivalence, DiffOptions)
+	 */
+	public <T> DiffResult<T> sequences(List<T> sequence1, List<T> sequence2, Equivalence<? super T> equivalence,
+			DiffOptions options) {
+		checkElements(sequence1);
+		checkElements(sequence2);
+
+		DiffResult<T> result;
+		int range = Math.max(sequence1.size(), sequence2.size());
+
+		if (range == 0) {
+			result = DiffResult.sequenceMatch();
+		} else {
+			DiffBuffers acquiredBuffers = acquire();
+
+			try {
+				ObjectDiffer<T> differ = Differ.sequenceDiffer(range, options, acquiredBuffers, equivalence);
+
+				differ.feedLeft(sequence1);
+				differ.feedRight(sequence2);
+				differ.run(true);
+				result = differ.toResult();
+			} finally {
+				release(acquiredBuffers);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Diffs two files line by line.
+	 *
+	 * @param file1 the 1st file to diff.
+	 * @param file2 the 2nd file to diff.
+	 * @param cs the {@linkplain Charset} to use for file decoding.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff result.
+	 * @throws IOException if an I/O error occurs.
+	 * @see Diff#lines(File, File, Charset, DiffOptions)
+	 */
+	public DiffResult<String> lines(File file1, File file2, Charset cs, DiffOptions options) throws IOException {
+		DiffResult<String> result;
+
+		if (MappedLineDiffer.isSupported(cs) && !options.isNormalizing()
+				&& file1.length() <= Integer.MAX_VALUE && file2.length() <= Integer.MAX_VALUE) {
+			result = mappedLines(file1, file2, cs, options);
+		} else if (file1.length() == file2.length() && Diff.isSameContent(file1, file2)) {
+			result = DiffResult.lineMatch();
+		} else if (!options.isNormalizing()) {
+			try (FileChannel channel1 = FileChannel.open(file1.toPath(), StandardOpenOption.READ);
+					FileChannel channel2 = FileChannel.open(file2.toPath(), StandardOpenOption.READ)) {
+				result = lines(LineSource.decode(channel1, cs), LineSource.decode(channel2, cs), options);
+			}
+		} else {
+			try (BufferedReader reader1 = Diff.newReader(file1, cs);
+					BufferedReader reader2 = Diff.newReader(file2, cs)) {
+				result = lines(reader1, reader2, options);
+			}
+		}
+		return result;
+	}
+
+	private DiffResult<String> mappedLines(File file1, File file2, Charset cs, DiffOptions options)
+			throws IOException {
+		ByteBuffer buffer1 = Diff.map(file1.toPath());
+		ByteBuffer buffer2 = Diff.map(file2.toPath());
+		DiffResult<String> result;
+
+		if (buffer1.equals(buffer2)) {
+			result = DiffResult.lineMatch();
+		} else {
+			DiffBuffers acquiredBuffers = acquire();
+
+			try {
+				MappedLineDiffer differ = new MappedLineDiffer(options, acquiredBuffers, cs, buffer1, buffer2);
+				boolean remaining = true;
+
+				while (differ.isRestrained() && remaining) {
+					remaining = differ.feed();
+					differ.run(false);
+				}
+				differ.run(true);
+				result = differ.toResult();
+			} finally {
+				release(acquiredBuffers);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Diffs two strings line by line.
+	 *
+	 * @param string1 the 1st string to diff.
+	 * @param string2 the 2nd string to diff.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff result.
+	 * @see Diff#lines(String, String, DiffOptions)
+	 */
+	public DiffResult<String> lines(String string1, String string2, DiffOptions options) {
+		DiffResult<String> result;
+
+		try (BufferedReader reader1 = Diff.newReader(string1); BufferedReader reader2 = Diff.newReader(string2)) {
+			result = lines(reader1, reader2, options);
+		} catch (IOException e) {
+			throw Exceptions.toRuntime(e);
+		}
+		return result;
+	}
+
+	/**
+	 * Diffs two {@linkplain BufferedReader} inputs line by line.
+	 *
+	 * @param reader1 the 1st input lines to diff.
+	 * @param reader2 the 2nd input lines to diff.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff result.
+	 * @throws IOException if an I/O error occurs.
+	 * @see Diff#lines(BufferedReader, BufferedReader, DiffOptions)
+	 */
+	public DiffResult<String> lines(BufferedReader reader1, BufferedReader reader2, DiffOptions options)
+			throws IOException {
+		DiffBuffers acquiredBuffers = acquire();
+		DiffResult<String> result;
+
+		try {
+			ReaderLineFeed feed = new ReaderLineFeed(reader1, reader2, options, acquiredBuffers);
+
+			feed.run(null);
+			result = feed.differ().toResult();
+		} finally {
+			release(acquiredBuffers);
+		}
+		return result;
+	}
+
+	/**
+	 * Diffs two files line by line collecting the diff statistics only.
+	 *
+	 * @param file1 the 1st file to diff.
+	 * @param file2 the 2nd file to diff.
+	 * @param cs the {@linkplain Charset} to use for file decoding.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff statistics.
+	 * @throws IOException if an I/O error occurs.
+	 * @see Diff#lineStats(File, File, Charset, DiffOptions)
+	 */
+	public DiffStats lineStats(File file1, File file2, Charset cs, DiffOptions options) throws IOException {
+		DiffStats stats;
+
+		if (MappedLineDiffer.isSupported(cs) && !options.isNormalizing()
+				&& file1.length() <= Integer.MAX_VALUE && file2.length() <= Integer.MAX_VALUE) {
+			stats = mappedLineStats(file1, file2, cs, options);
+		} else if (!options.isNormalizing()) {
+			try (FileChannel channel1 = FileChannel.open(file1.toPath(), StandardOpenOption.READ);
+					FileChannel channel2 = FileChannel.open(file2.toPath(), StandardOpenOption.READ)) {
+				DiffBuffers acquiredBuffers = acquire();
+
+				try {
+					stats = new ReaderLineFeed(LineSource.decode(channel1, cs), LineSource.decode(channel2, cs),
+							options, acquiredBuffers).stats();
+				} finally {
+					release(acquiredBuffers);
+				}
+			}
+		} else {
+			try (BufferedReader reader1 = Diff.newReader(file1, cs);
+					BufferedReader reader2 = Diff.newReader(file2, cs)) {
+				stats = lineStats(reader1, reader2, options);
+			}
+		}
+		return stats;
+	}
+
+	private DiffStats mappedLineStats(File file1, File file2, Charset cs, DiffOptions options) throws IOException {
+		ByteBuffer buffer1 = Diff.map(file1.toPath());
+		ByteBuffer buffer2 = Diff.map(file2.toPath());
+		DiffBuffers acquiredBuffers = acquire();
+		DiffStats stats;
+
+		try {
+			MappedLineDiffer differ = new MappedLineDiffer(options, acquiredBuffers, cs, buffer1, buffer2);
+			DiffStatsCollector collector = new DiffStatsCollector();
+			boolean remaining = true;
+
+			differ.discardValues();
+			while (differ.isRestrained() && remaining) {
+				remaining = differ.feed();
+				differ.run(false);
+				differ.flush(collector);
+			}
+			differ.run(true);
+			differ.flush(collector);
+			stats = collector.toStats(differ);
+		} finally {
+			release(acquiredBuffers);
+		}
+		return stats;
+	}
+
+	/**
+	 * Diffs two {@linkplain BufferedReader} inputs line by line collecting the diff statistics only.
+	 *
+	 * @param reader1 the 1st input lines to diff.
+	 * @param reader2 the 2nd input lines to diff.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @return the diff statistics.
+	 * @throws IOException if an I/O error occurs.
+	 * @see Diff#lineStats(BufferedReader, BufferedReader, DiffOptions)
+	 */
+	public DiffStats lineStats(BufferedReader reader1, BufferedReader reader2, DiffOptions options)
+			throws IOException {
+		DiffBuffers acquiredBuffers = acquire();
+		DiffStats stats;
+
+		try {
+			stats = new ReaderLineFeed(reader1, reader2, options, acquiredBuffers).stats();
+		} finally {
+			release(acquiredBuffers);
+		}
+		return stats;
+	}
+
+	private DiffResult<String> lines(LineSource source1, LineSource source2, DiffOptions options) throws IOException {
+		DiffBuffers acquiredBuffers = acquire();
+		DiffResult<String> result;
+
+		try {
+			ReaderLineFeed feed = new ReaderLineFeed(source1, source2, options, acquiredBuffers);
+
+			feed.run(null);
+			result = feed.differ().toResult();
+		} finally {
+			release(acquiredBuffers);
+		}
+		return result;
+	}
+
+	/**
+	 * Diffs two {@linkplain BufferedReader} inputs line by line and passes the resulting entries to a
+	 * {@linkplain DiffListener}.
+	 *
+	 * @param reader1 the 1st input lines to diff.
+	 * @param reader2 the 2nd input lines to diff.
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @param listener the {@linkplain DiffListener} to pass the entries to.
+	 * @return {@code true} if all diffs have been reported. {@code false} if the number diffs exceeded the diff range.
+	 * @throws IOException if an I/O error occurs.
+	 * @see Diff#lines(BufferedReader, BufferedReader, DiffOptions, DiffListener)
+	 */
+	public boolean lines(BufferedReader reader1, BufferedReader reader2, DiffOptions options,
+			DiffListener<String> listener) throws IOException {
+		DiffBuffers acquiredBuffers = acquire();
+		boolean restrained;
+
+		try {
+			ReaderLineFeed feed = new ReaderLineFeed(reader1, reader2, options, acquiredBuffers);
+
+			feed.run(listener);
+			restrained = feed.differ().isRestrained();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			release(acquiredBuffers);
+		}
+		return restrained;
+	}
+
+	private static void checkElements(List<?> sequence) {
+		int index = 0;
+
+		for (@Nullable Object element : sequence) {
+			if (element == null) {
+				throw new NullPointerException("Sequence element must not be null (index: " + index + ")");
+			}
+			index++;
+		}
+	}
+
+	private DiffBuffers acquire() {
+		DiffBuffers acquiredBuffers;
+
+		if (this.busy) {
+			acquiredBuffers = new DiffBuffers();
+		} else {
+			acquiredBuffers = this.buffers;
+			this.busy = true;
+		}
+		return acquiredBuffers;
+	}
+
+	private void release(DiffBuffers releasedBuffers) {
+		releasedBuffers.release();
+		if (releasedBuffers == this.buffers) {
+			this.busy = false;
+		}
+	}
+
+}
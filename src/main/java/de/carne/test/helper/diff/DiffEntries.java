@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Compact storage for the entries of a diff.
+ * <p>
+ * The entries are kept in parallel arrays (positions, a packed type bitset and the values) to provide constant time
+ * random access. {@linkplain DiffEntry} instances are only created on demand.
+ * </p>
+ *
+ * @param <T> actual type of the diffed values.
+ */
+final class DiffEntries<T> {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[] positions;
+	private long[] inserts;
+	private @Nullable Object[] values;
+	private int size = 0;
+
+	DiffEntries() {
+		this(INITIAL_CAPACITY);
+	}
+
+	DiffEntries(int capacity) {
+		this.positions = new int[capacity];
+		this.inserts = new long[(capacity + 63) >>> 6];
+		this.values = new @Nullable Object[capacity];
+	}
+
+	/**
+	 * Adds an entry.
+	 *
+	 * @param position the entry's position.
+	 * @param type the entry's type.
+	 * @param value the entry's value.
+	 */
+	public void add(int position, DiffEntry.Type type, T value) {
+		addRaw(position, type, value);
+	}
+
+	/**
+	 * Adds an entry without value.
+	 * <p>
+	 * Entries added this way only provide their position and type (see {@linkplain Differ#discardValues()}).
+	 * </p>
+	 *
+	 * @param position the entry's position.
+	 * @param type the entry's type.
+	 */
+	public void add(int position, DiffEntry.Type type) {
+		addRaw(position, type, null);
+	}
+
+	private void addRaw(int position, DiffEntry.Type type, @Nullable Object value) {
+		if (this.size == this.positions.length) {
+			grow(this.size + 1);
+		}
+		this.positions[this.size] = position;
+		if (type == DiffEntry.Type.INSERT) {
+			this.inserts[this.size >>> 6] |= 1L << this.size;
+		} else {
+			this.inserts[this.size >>> 6] &= ~(1L << this.size);
+		}
+		this.values[this.size] = value;
+		this.size++;
+	}
+
+	/**
+	 * Adds all entries of another instance.
+	 *
+	 * @param entries the entries to add.
+	 */
+	public void addAll(DiffEntries<T> entries) {
+		if (this.size + entries.size > this.positions.length) {
+			grow(this.size + entries.size);
+		}
+		for (int index = 0; index < entries.size; index++) {
+			addRaw(entries.positions[index], entries.type(index), entries.values[index]);
+		}
+	}
+
+	/**
+	 * Removes the given number of entries from the end.
+	 *
+	 * @param count the number of entries to remove.
+	 */
+	public void removeLast(int count) {
+		int newSize = this.size - count;
+
+		Arrays.fill(this.values, newSize, this.size, null);
+		this.size = newSize;
+	}
+
+	/**
+	 * Gets the number of entries.
+	 *
+	 * @return the number of entries.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Gets the position of the entry at the given index.
+	 *
+	 * @param index the index of the entry.
+	 * @return the position of the entry.
+	 */
+	public int position(int index) {
+		return this.positions[index];
+	}
+
+	/**
+	 * Gets the type of the entry at the given index.
+	 *
+	 * @param index the index of the entry.
+	 * @return the type of the entry.
+	 */
+	public DiffEntry.Type type(int index) {
+		return ((this.inserts[index >>> 6] & (1L << index)) != 0 ? DiffEntry.Type.INSERT : DiffEntry.Type.DELETE);
+	}
+
+	/**
+	 * Gets the value of the entry at the given index.
+	 *
+	 * @param index the index of the entry.
+	 * @return the value of the entry.
+	 */
+	@SuppressWarnings("unchecked")
+	public T value(int index) {
+		return (T) Objects.requireNonNull(this.values[index]);
+	}
+
+	/**
+	 * Gets the entry at the given index.
+	 *
+	 * @param index the index of the entry.
+	 * @return the entry at the given index.
+	 */
+	public DiffEntry<T> entryAt(int index) {
+		Objects.checkIndex(index, this.size);
+		return new DiffEntry<>(this.positions[index], type(index), value(index));
+	}
+
+	private void grow(int minCapacity) {
+		int capacity = Math.max(this.positions.length << 1, minCapacity);
+
+		this.positions = Arrays.copyOf(this.positions, capacity);
+		this.inserts = Arrays.copyOf(this.inserts, (capacity + 63) >>> 6);
+		this.values = Arrays.copyOf(this.values, capacity);
+	}
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+/**
+ * Callback interface receiving diff entries as soon as they are final.
+ *
+ * @param <T> actual type of the diffed values.
+ * @see Diff#lines(java.io.BufferedReader, java.io.BufferedReader, DiffOptions, DiffListener)
+ */
+@FunctionalInterface
+public interface DiffListener<T> {
+
+	/**
+	 * Called for every diff entry in the order of the entries.
+	 *
+	 * @param entry the diff entry.
+	 */
+	void onEntry(DiffEntry<T> entry);
+
+}
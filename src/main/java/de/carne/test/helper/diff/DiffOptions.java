@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+import de.carne.util.Check;
+
+/**
+ * Options controlling the diff operations of the {@linkplain Diff} class.
+ * <p>
+ * Instances are immutable. Use the {@code with*} functions to derive modified options.
+ * </p>
+ */
+public final class DiffOptions {
+
+	/**
+	 * The default number of elements diffed at once.
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 100;
+
+	/**
+	 * The maximum number of edits representing an unbounded diff.
+	 */
+	public static final int UNBOUNDED_EDITS = Integer.MAX_VALUE;
+
+	private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+	private static final DiffOptions DEFAULTS = new DiffOptions();
+
+	private int windowSize = DEFAULT_WINDOW_SIZE;
+	private int maxWindowSize = DEFAULT_WINDOW_SIZE;
+	private boolean streaming = false;
+	private int parallelThreshold = 0;
+	private DiffAlgorithm algorithm = DiffAlgorithm.MYERS;
+	private int maxEdits = UNBOUNDED_EDITS;
+	private Duration timeout = Duration.ZERO;
+	private BooleanSupplier cancellation = NEVER_CANCELLED;
+	private boolean whitespaceFolding = false;
+	private boolean caseFolding = false;
+	private List<Pattern> masks = Collections.emptyList();
+
+	private DiffOptions() {
+		// Defaults
+	}
+
+	private DiffOptions(DiffOptions options) {
+		this.windowSize = options.windowSize;
+		this.maxWindowSize = options.maxWindowSize;
+		this.streaming = options.streaming;
+		this.parallelThreshold = options.parallelThreshold;
+		this.algorithm = options.algorithm;
+		this.maxEdits = options.maxEdits;
+		this.timeout = options.timeout;
+		this.cancellation = options.cancellation;
+		this.whitespaceFolding = options.whitespaceFolding;
+		this.caseFolding = options.caseFolding;
+		this.masks = options.masks;
+	}
+
+	/**
+	 * Gets the default options.
+	 * <p>
+	 * The default options diff inputs in a fixed window of {@value #DEFAULT_WINDOW_SIZE} elements and stop diffing as
+	 * soon as the differences exceed this window (see {@linkplain DiffResult#isRestrained()}).
+	 * </p>
+	 *
+	 * @return the default options.
+	 */
+	public static DiffOptions defaults() {
+		return DEFAULTS;
+	}
+
+	/**
+	 * Gets the options for streaming diff operations.
+	 * <p>
+	 * In streaming mode the diff window grows as needed up to the given maximum size. If the differences exceed even the
+	 * maximum window, the current window is accepted as is and diffing resynchronizes behind it. Hence the memory needed
+	 * is bounded by the maximum window size and the diff result is always complete (but not necessarily minimal).
+	 * </p>
+	 *
+	 * @param maxWindowSize the maximum number of elements to keep in memory per input.
+	 * @return the options for streaming diff operations.
+	 */
+	public static DiffOptions streaming(int maxWindowSize) {
+		DiffOptions options = DEFAULTS.withWindowSize(Math.min(DEFAULT_WINDOW_SIZE, maxWindowSize), maxWindowSize);
+
+		options.streaming = true;
+		return options;
+	}
+
+	/**
+	 * Derives new options with the given window sizes.
+	 *
+	 * @param newWindowSize the initial number of elements to diff at once.
+	 * @param newMaxWindowSize the maximum number of elements to diff at once.
+	 * @return the derived options.
+	 */
+	public DiffOptions withWindowSize(int newWindowSize, int newMaxWindowSize) {
+		Check.isTrue(newWindowSize > 0);
+		Check.isTrue(newMaxWindowSize >= newWindowSize);
+
+		DiffOptions options = new DiffOptions(this);
+
+		options.windowSize = newWindowSize;
+		options.maxWindowSize = newMaxWindowSize;
+		return options;
+	}
+
+	/**
+	 * Derives new options with the given parallel threshold.
+	 * <p>
+	 * Once the diff core has split the input into two independent sub-problems, each sub-problem whose combined number
+	 * of elements is at least the given threshold is diffed in parallel via the common {@linkplain ForkJoinPool}. The
+	 * diff result is identical to the one of the sequential diff.
+	 * </p>
+	 *
+	 * @param newParallelThreshold the minimum number of elements to diff in parallel ({@code 0} disables parallel
+	 * diffing).
+	 * @return the derived options.
+	 */
+	public DiffOptions withParallelThreshold(int newParallelThreshold) {
+		Check.isTrue(newParallelThreshold >= 0);
+
+		DiffOptions options = new DiffOptions(this);
+
+		options.parallelThreshold = newParallelThreshold;
+		return options;
+	}
+
+	/**
+	 * Derives new options with the given diff algorithm.
+	 *
+	 * @param newAlgorithm the {@linkplain DiffAlgorithm} to use.
+	 * @return the derived options.
+	 */
+	public DiffOptions withAlgorithm(DiffAlgorithm newAlgorithm) {
+		DiffOptions options = new DiffOptions(this);
+
+		options.algorithm = newAlgorithm;
+		return options;
+	}
+
+	/**
+	 * Derives new options with the given maximum number of edits.
+	 * <p>
+	 * The diff operation is aborted as soon as it is evident that the inputs differ by more than the given number of
+	 * edits (inserted or deleted elements). In this case the diff result contains the entries found so far and is
+	 * marked as exceeded (see {@linkplain DiffResult#isExceeded()}). This makes checks of the form "do the inputs
+	 * differ by at most k edits" cheap even for wildly different inputs.
+	 * </p>
+	 *
+	 * @param newMaxEdits the maximum number of edits to accept ({@value #UNBOUNDED_EDITS} for unbounded diffing).
+	 * @return the derived options.
+	 */
+	public DiffOptions withMaxEdits(int newMaxEdits) {
+		Check.isTrue(newMaxEdits >= 0);
+
+		DiffOptions options = new DiffOptions(this);
+
+		options.maxEdits = newMaxEdits;
+		return options;
+	}
+
+	/**
+	 * Derives new options with the given time budget.
+	 * <p>
+	 * Once the time budget of a diff operation is used up, the exact (minimal) diff search is abandoned. The remaining
+	 * differences are matched via unique anchors and greedily in between. The diff result is still valid, but not
+	 * necessarily minimal and is marked as approximate (see {@linkplain DiffResult#isApproximate()}).
+	 * </p>
+	 *
+	 * @param newTimeout the time budget per diff operation ({@linkplain Duration#ZERO} for an unlimited time budget).
+	 * @return the derived options.
+	 */
+	public DiffOptions withTimeout(Duration newTimeout) {
+		Check.isTrue(!newTimeout.isNegative());
+
+		DiffOptions options = new DiffOptions(this);
+
+		options.timeout = newTimeout;
+		return options;
+	}
+
+	/**
+	 * Derives new options with the given cancellation token.
+	 * <p>
+	 * The token is polled during the diff search. As soon as it signals cancellation, the diff operation continues the
+	 * same way as if its time budget has been used up (see {@linkplain #withTimeout(Duration)}).
+	 * </p>
+	 *
+	 * @param newCancellation the cancellation token to poll.
+	 * @return the derived options.
+	 */
+	public DiffOptions withCancellation(BooleanSupplier newCancellation) {
+		DiffOptions options = new DiffOptions(this);
+
+		options.cancellation = newCancellation;
+		return options;
+	}
+
+	/**
+	 * Derives new options with whitespace folding enabled or disabled.
+	 * <p>
+	 * If enabled, leading and trailing whitespace is ignored and every inner run of whitespace is considered equal to a
+	 * single space when comparing lines.
+	 * </p>
+	 *
+	 * @param enable whether to enable whitespace folding.
+	 * @return the derived options.
+	 */
+	public DiffOptions withWhitespaceFolding(boolean enable) {
+		DiffOptions options = new DiffOptions(this);
+
+		options.whitespaceFolding = enable;
+		return options;
+	}
+
+	/**
+	 * Derives new options with case folding enabled or disabled.
+	 * <p>
+	 * If enabled, lines are compared case insensitive.
+	 * </p>
+	 *
+	 * @param enable whether to enable case folding.
+	 * @return the derived options.
+	 */
+	public DiffOptions withCaseFolding(boolean enable) {
+		DiffOptions options = new DiffOptions(this);
+
+		options.caseFolding = enable;
+		return options;
+	}
+
+	/**
+	 * Derives new options with an additional mask.
+	 * <p>
+	 * All line parts matching a mask are considered equal when comparing lines (e.g. to ignore timestamps or generated
+	 * ids).
+	 * </p>
+	 *
+	 * @param mask the regular expression matching the line parts to mask.
+	 * @return the derived options.
+	 */
+	public DiffOptions withMask(Pattern mask) {
+		DiffOptions options = new DiffOptions(this);
+		List<Pattern> newMasks = new ArrayList<>(this.masks);
+
+		newMasks.add(mask);
+		options.masks = Collections.unmodifiableList(newMasks);
+		return options;
+	}
+
+	/**
+	 * Gets the initial number of elements to diff at once.
+	 *
+	 * @return the initial number of elements to diff at once.
+	 */
+	public int windowSize() {
+		return this.windowSize;
+	}
+
+	/**
+	 * Gets the maximum number of elements to diff at once.
+	 *
+	 * @return the maximum number of elements to diff at once.
+	 */
+	public int maxWindowSize() {
+		return this.maxWindowSize;
+	}
+
+	/**
+	 * Checks whether streaming mode is enabled.
+	 *
+	 * @return {@code true} if streaming mode is enabled.
+	 * @see #streaming(int)
+	 */
+	public boolean isStreaming() {
+		return this.streaming;
+	}
+
+	/**
+	 * Gets the minimum number of elements to diff in parallel.
+	 *
+	 * @return the minimum number of elements to diff in parallel ({@code 0} if parallel diffing is disabled).
+	 * @see #withParallelThreshold(int)
+	 */
+	public int parallelThreshold() {
+		return this.parallelThreshold;
+	}
+
+	/**
+	 * Gets the diff algorithm to use.
+	 *
+	 * @return the diff algorithm to use.
+	 * @see #withAlgorithm(DiffAlgorithm)
+	 */
+	public DiffAlgorithm algorithm() {
+		return this.algorithm;
+	}
+
+	/**
+	 * Gets the maximum number of edits to accept.
+	 *
+	 * @return the maximum number of edits to accept ({@value #UNBOUNDED_EDITS} if unbounded).
+	 * @see #withMaxEdits(int)
+	 */
+	public int maxEdits() {
+		return this.maxEdits;
+	}
+
+	/**
+	 * Gets the time budget per diff operation.
+	 *
+	 * @return the time budget per diff operation ({@linkplain Duration#ZERO} if unlimited).
+	 * @see #withTimeout(Duration)
+	 */
+	public Duration timeout() {
+		return this.timeout;
+	}
+
+	/**
+	 * Gets the cancellation token.
+	 *
+	 * @return the cancellation token.
+	 * @see #withCancellation(BooleanSupplier)
+	 */
+	public BooleanSupplier cancellation() {
+		return this.cancellation;
+	}
+
+	/**
+	 * Checks whether whitespace folding is enabled.
+	 *
+	 * @return {@code true} if whitespace folding is enabled.
+	 * @see #withWhitespaceFolding(boolean)
+	 */
+	public boolean isWhitespaceFolding() {
+		return this.whitespaceFolding;
+	}
+
+	/**
+	 * Checks whether case folding is enabled.
+	 *
+	 * @return {@code true} if case folding is enabled.
+	 * @see #withCaseFolding(boolean)
+	 */
+	public boolean isCaseFolding() {
+		return this.caseFolding;
+	}
+
+	/**
+	 * Gets the masks to apply.
+	 *
+	 * @return the masks to apply.
+	 * @see #withMask(Pattern)
+	 */
+	public List<Pattern> masks() {
+		return this.masks;
+	}
+
+	/**
+	 * Checks whether any kind of line normalization is enabled.
+	 *
+	 * @return {@code true} if any kind of line normalization is enabled.
+	 */
+	public boolean isNormalizing() {
+		return this.whitespaceFolding || this.caseFolding || !this.masks.isEmpty();
+	}
+
+	String fingerprint() {
+		// Only the options affecting the diff result are considered (parallel and sequential search yield the same
+		// result; timeout or cancellation mark the result as approximate)
+		StringBuilder buffer = new StringBuilder();
+
+		buffer.append(this.windowSize).append(',').append(this.maxWindowSize).append(',').append(this.streaming);
+		buffer.append(',').append(this.algorithm).append(',').append(this.maxEdits);
+		buffer.append(',').append(this.whitespaceFolding).append(',').append(this.caseFolding);
+		for (Pattern mask : this.masks) {
+			String pattern = mask.pattern();
+
+			buffer.append(',').append(mask.flags()).append(':').append(pattern.length()).append(':').append(pattern);
+		}
+		return buffer.toString();
+	}
+
+	UnaryOperator<String> lineNormalizer() {
+		return (isNormalizing() ? new LineNormalizer(this.whitespaceFolding, this.caseFolding, this.masks)
+				: UnaryOperator.identity());
+	}
+
+}
@@ -18,11 +18,11 @@ package de.carne.test.helper.diff;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.Collections;
+import java.time.Duration;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.eclipse.jdt.annotation.Nullable;
 
@@ -35,15 +35,26 @@ import de.carne.util.Strings;
  */
 public final class DiffResult<T> implements Iterable<DiffEntry<T>> {
 
-	private static final DiffResult<Character> CHARACTER_MATCH = new DiffResult<>(Collections.emptyList(), true);
-	private static final DiffResult<String> LINE_MATCH = new DiffResult<>(Collections.emptyList(), true);
+	private static final DiffResult<Character> CHARACTER_MATCH = new DiffResult<>(new DiffEntries<>(0), true);
+	private static final DiffResult<String> LINE_MATCH = new DiffResult<>(new DiffEntries<>(0), true);
+	private static final DiffResult<String> TOKEN_MATCH = new DiffResult<>(new DiffEntries<>(0), true);
+	private static final DiffResult<Object> SEQUENCE_MATCH = new DiffResult<>(new DiffEntries<>(0), true);
+	private static final DiffResult<ByteRange> BYTE_MATCH = new DiffResult<>(new DiffEntries<>(0), true);
 
-	private final List<DiffEntry<T>> diffs;
+	private final DiffEntries<T> diffs;
 	private final boolean restrained;
+	private final boolean exceeded;
+	private final boolean approximate;
 
-	DiffResult(List<DiffEntry<T>> diffs, boolean restrained) {
+	DiffResult(DiffEntries<T> diffs, boolean restrained) {
+		this(diffs, restrained, false, false);
+	}
+
+	DiffResult(DiffEntries<T> diffs, boolean restrained, boolean exceeded, boolean approximate) {
 		this.diffs = diffs;
 		this.restrained = restrained;
+		this.exceeded = exceeded;
+		this.approximate = approximate;
 	}
 
 	/**
@@ -64,6 +75,35 @@ public final class DiffResult<T> implements Iterable<DiffEntry<T>> {
 		return LINE_MATCH;
 	}
 
+	/**
+	 * Gets the {@linkplain DiffResult} instance representing a match for token based diff.
+	 *
+	 * @return the {@linkplain DiffResult} instance representing a match for token based diff.
+	 */
+	public static DiffResult<String> tokenMatch() {
+		return TOKEN_MATCH;
+	}
+
+	/**
+	 * Gets the {@linkplain DiffResult} instance representing a match for sequence based diff.
+	 *
+	 * @param <T> actual type of the diffed values.
+	 * @return the {@linkplain DiffResult} instance representing a match for sequence based diff.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> DiffResult<T> sequenceMatch() {
+		return (DiffResult<T>) SEQUENCE_MATCH;
+	}
+
+	/**
+	 * Gets the {@linkplain DiffResult} instance representing a match for byte based diff.
+	 *
+	 * @return the {@linkplain DiffResult} instance representing a match for byte based diff.
+	 */
+	public static DiffResult<ByteRange> byteMatch() {
+		return BYTE_MATCH;
+	}
+
 	/**
 	 * Checks whether this result instance contains all diffs or only a subset in case the diffs exceeded the diff
 	 * range.
@@ -75,9 +115,54 @@ public final class DiffResult<T> implements Iterable<DiffEntry<T>> {
 		return this.restrained;
 	}
 
+	/**
+	 * Checks whether the diff operation has been aborted because the inputs differ by more than the requested maximum
+	 * number of edits (see {@linkplain DiffOptions#withMaxEdits(int)}).
+	 * <p>
+	 * An exceeded result is never restrained and contains only the entries found until the diff operation has been
+	 * aborted.
+	 * </p>
+	 *
+	 * @return {@code true} if the maximum number of edits has been exceeded.
+	 */
+	public boolean isExceeded() {
+		return this.exceeded;
+	}
+
+	/**
+	 * Checks whether the diff operation switched to a heuristic because its deadline passed or it has been cancelled
+	 * (see {@linkplain DiffOptions#withTimeout(Duration)}).
+	 * <p>
+	 * An approximate result is valid (applying it transforms the 1st input into the 2nd one) but not necessarily
+	 * minimal.
+	 * </p>
+	 *
+	 * @return {@code true} if this result is approximate.
+	 */
+	public boolean isApproximate() {
+		return this.approximate;
+	}
+
 	@Override
 	public Iterator<DiffEntry<T>> iterator() {
-		return this.diffs.iterator();
+		return new Iterator<>() {
+
+			private int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return this.index < DiffResult.this.diffs.size();
+			}
+
+			@Override
+			public DiffEntry<T> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return DiffResult.this.diffs.entryAt(this.index++);
+			}
+
+		};
 	}
 
 	/**
@@ -91,22 +176,48 @@ public final class DiffResult<T> implements Iterable<DiffEntry<T>> {
 
 	/**
 	 * Gets the entry at the given position in this result instance.
+	 * <p>
+	 * The entries are stored in a compact form and the returned {@linkplain DiffEntry} is created on demand.
+	 * </p>
 	 *
 	 * @param index the position of the entry to get.
 	 * @return the entry at the given position in this result instance.
 	 */
 	public DiffEntry<T> entryAt(int index) {
-		return this.diffs.get(index);
+		return this.diffs.entryAt(index);
 	}
 
 	@Override
 	public int hashCode() {
-		return this.diffs.hashCode();
+		int hash = 1;
+
+		for (int index = 0; index < this.diffs.size(); index++) {
+			hash = 31 * hash + this.diffs.position(index);
+			hash = 31 * hash + this.diffs.type(index).ordinal();
+			hash = 31 * hash + this.diffs.value(index).hashCode();
+		}
+		return hash;
 	}
 
 	@Override
 	public boolean equals(@Nullable Object obj) {
-		return obj instanceof DiffResult<?> && this.diffs.equals(((DiffResult<?>) obj).diffs);
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof DiffResult<?>)) {
+			return false;
+		}
+
+		DiffEntries<?> objDiffs = ((DiffResult<?>) obj).diffs;
+		int size = this.diffs.size();
+		boolean equal = size == objDiffs.size();
+
+		for (int index = 0; equal && index < size; index++) {
+			equal = this.diffs.position(index) == objDiffs.position(index)
+					&& this.diffs.type(index) == objDiffs.type(index)
+					&& this.diffs.value(index).equals(objDiffs.value(index));
+		}
+		return equal;
 	}
 
 	@Override
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of {@linkplain DiffResult} instances.
+ * <p>
+ * The encoding consists of a versioned header followed by the diff entries and a trailer holding the result flags.
+ * Every entry is encoded as a variable length integer combining the delta to the previous entry's position, the entry
+ * type and whether the entry's value follows inline or is a reference into the table of already encoded values. As
+ * the value table is built up while encoding, the encoding can be written in a single pass (see
+ * {@linkplain DiffResultWriter}).
+ * </p>
+ *
+ * @param <T> actual type of the encoded values.
+ */
+public final class DiffResultCodec<T> {
+
+	static final byte[] MAGIC = { 'D', 'I', 'F', 'R' };
+	static final int VERSION = 2;
+	static final int INLINE_BIT = 0x01;
+	static final int INSERT_BIT = 0x02;
+	static final long END_MARKER = 0;
+	static final int RESTRAINED_FLAG = 0x01;
+	static final int EXCEEDED_FLAG = 0x02;
+	static final int APPROXIMATE_FLAG = 0x04;
+	static final int MAX_VALUE_TABLE_SIZE = 1 << 16;
+
+	private static final int CHARACTERS_TYPE_ID = 1;
+	private static final int STRINGS_TYPE_ID = 2;
+	private static final int BYTE_RANGES_TYPE_ID = 3;
+
+	private static final DiffResultCodec<Character> CHARACTERS = new DiffResultCodec<>(new CharacterValueCodec());
+	private static final DiffResultCodec<String> STRINGS = new DiffResultCodec<>(new StringValueCodec());
+	private static final DiffResultCodec<ByteRange> BYTE_RANGES = new DiffResultCodec<>(new ByteRangeValueCodec());
+
+	private final ValueCodec<T> valueCodec;
+
+	private DiffResultCodec(ValueCodec<T> valueCodec) {
+		this.valueCodec = valueCodec;
+	}
+
+	/**
+	 * Gets the codec for character diff results (see {@linkplain Diff#characters(String, String)}).
+	 *
+	 * @return the codec for character diff results.
+	 */
+	public static DiffResultCodec<Character> characters() {
+		return CHARACTERS;
+	}
+
+	/**
+	 * Gets the codec for line or token diff results (see {@linkplain Diff#lines(String, String)}).
+	 *
+	 * @return the codec for line or token diff results.
+	 */
+	public static DiffResultCodec<String> strings() {
+		return STRINGS;
+	}
+
+	/**
+	 * Gets the codec for binary diff results (see {@linkplain Diff#bytes(byte[], byte[])}).
+	 *
+	 * @return the codec for binary diff results.
+	 */
+	public static DiffResultCodec<ByteRange> byteRanges() {
+		return BYTE_RANGES;
+	}
+
+	/**
+	 * Creates a new {@linkplain DiffResultWriter} for streaming encoding.
+	 *
+	 * @param out the {@linkplain OutputStream} to write to.
+	 * @return the created {@linkplain DiffResultWriter}.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public DiffResultWriter<T> newWriter(OutputStream out) throws IOException {
+		return new DiffResultWriter<>(out, this.valueCodec);
+	}
+
+	/**
+	 * Encodes a {@linkplain DiffResult}.
+	 *
+	 * @param result the {@linkplain DiffResult} to encode.
+	 * @param out the {@linkplain OutputStream} to write to (the stream is not closed).
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void write(DiffResult<T> result, OutputStream out) throws IOException {
+		new DiffResultWriter<>(out, this.valueCodec).write(result);
+	}
+
+	/**
+	 * Encodes a {@linkplain DiffResult} to a file.
+	 *
+	 * @param result the {@linkplain DiffResult} to encode.
+	 * @param file the file to write to.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void write(DiffResult<T> result, Path file) throws IOException {
+		try (DiffResultWriter<T> writer = newWriter(Files.newOutputStream(file))) {
+			writer.write(result);
+		}
+	}
+
+	/**
+	 * Decodes a {@linkplain DiffResult}.
+	 *
+	 * @param in the {@linkplain InputStream} to read from (the stream is read up to its end but not closed).
+	 * @return the decoded {@linkplain DiffResult}.
+	 * @throws IOException if an I/O error occurs or the encoding is invalid.
+	 */
+	public DiffResult<T> read(InputStream in) throws IOException {
+		return read(ByteBuffer.wrap(in.readAllBytes()));
+	}
+
+	/**
+	 * Decodes a {@linkplain DiffResult} from a file.
+	 * <p>
+	 * The file is memory-mapped and decoded in place. Binary diff values (see {@linkplain #byteRanges()}) remain views
+	 * on the mapped file.
+	 * </p>
+	 *
+	 * @param file the file to read from.
+	 * @return the decoded {@linkplain DiffResult}.
+	 * @throws IOException if an I/O error occurs or the encoding is invalid.
+	 */
+	public DiffResult<T> read(Path file) throws IOException {
+		return read(Diff.map(file));
+	}
+
+	private DiffResult<T> read(ByteBuffer buffer) throws IOException {
+		try {
+			for (byte magicByte : MAGIC) {
+				if (buffer.get() != magicByte) {
+					throw new IOException("Not a diff result encoding");
+				}
+			}
+
+			int version = buffer.get() & 0xff;
+
+			if (version != VERSION) {
+				throw new IOException("Unsupported diff result encoding version: " + version);
+			}
+
+			int typeId = buffer.get() & 0xff;
+
+			if (typeId != this.valueCodec.typeId()) {
+				throw new IOException("Unexpected diff value type: " + typeId);
+			}
+
+			DiffEntries<T> diffs = new DiffEntries<>();
+			List<T> valueTable = new ArrayList<>();
+			long position = 0;
+			long header;
+
+			while ((header = readVarint(buffer)) != END_MARKER) {
+				position += unZigZag((header >>> 2) - 1);
+				if (position < 0 || position > Integer.MAX_VALUE) {
+					throw new IOException("Invalid diff entry position: " + position);
+				}
+
+				T value;
+
+				if ((header & INLINE_BIT) != 0) {
+					value = this.valueCodec.read(buffer);
+					if (valueTable.size() < MAX_VALUE_TABLE_SIZE) {
+						valueTable.add(value);
+					}
+				} else {
+					long valueIndex = readVarint(buffer);
+
+					if (valueIndex >= valueTable.size()) {
+						throw new IOException("Invalid diff value reference: " + valueIndex);
+					}
+					value = valueTable.get((int) valueIndex);
+				}
+				diffs.add((int) position, ((header & INSERT_BIT) != 0 ? DiffEntry.Type.INSERT : DiffEntry.Type.DELETE),
+						value);
+			}
+
+			int flags = buffer.get();
+
+			return new DiffResult<>(diffs, (flags & RESTRAINED_FLAG) != 0, (flags & EXCEEDED_FLAG) != 0,
+					(flags & APPROXIMATE_FLAG) != 0);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated diff result encoding", e);
+		}
+	}
+
+	static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	static long readVarint(ByteBuffer buffer) throws IOException {
+		long value = 0;
+		int shift = 0;
+		byte b;
+
+		do {
+			if (shift > 63) {
+				throw new IOException("Invalid variable length integer");
+			}
+			b = buffer.get();
+			value |= (long) (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	static int readLength(ByteBuffer buffer) throws IOException {
+		long length = readVarint(buffer);
+
+		if (length > buffer.remaining()) {
+			throw new IOException("Invalid diff value length: " + length);
+		}
+		return (int) length;
+	}
+
+	private static final class CharacterValueCodec implements ValueCodec<Character> {
+
+		CharacterValueCodec() {
+			// Make constructor accessible
+		}
+
+		@Override
+		public int typeId() {
+			return CHARACTERS_TYPE_ID;
+		}
+
+		@Override
+		public void write(DiffResultWriter<Character> writer, Character value) throws IOException {
+			writer.writeVarint(value.charValue());
+		}
+
+		@Override
+		public Character read(ByteBuffer buffer) throws IOException {
+			long value = readVarint(buffer);
+
+			if (value > Character.MAX_VALUE) {
+				throw new IOException("Invalid character value: " + value);
+			}
+			return Character.valueOf((char) value);
+		}
+
+	}
+
+	private static final class StringValueCodec implements ValueCodec<String> {
+
+		StringValueCodec() {
+			// Make constructor accessible
+		}
+
+		@Override
+		public int typeId() {
+			return STRINGS_TYPE_ID;
+		}
+
+		@Override
+		public void write(DiffResultWriter<String> writer, String value) throws IOException {
+			// Encode the UTF-16 chars directly, as a charset encoding would replace unpaired surrogates
+			int length = value.length();
+
+			writer.writeVarint(length);
+			for (int index = 0; index < length; index++) {
+				writer.writeVarint(value.charAt(index));
+			}
+		}
+
+		@Override
+		public String read(ByteBuffer buffer) throws IOException {
+			// Every char takes at least one byte
+			int length = readLength(buffer);
+			char[] chars = new char[length];
+
+			for (int index = 0; index < length; index++) {
+				long value = readVarint(buffer);
+
+				if (value > Character.MAX_VALUE) {
+					throw new IOException("Invalid character value: " + value);
+				}
+				chars[index] = (char) value;
+			}
+			return new String(chars);
+		}
+
+	}
+
+	private static final class ByteRangeValueCodec implements ValueCodec<ByteRange> {
+
+		ByteRangeValueCodec() {
+			// Make constructor accessible
+		}
+
+		@Override
+		public int typeId() {
+			return BYTE_RANGES_TYPE_ID;
+		}
+
+		@Override
+		public void write(DiffResultWriter<ByteRange> writer, ByteRange value) throws IOException {
+			ByteBuffer bytes = value.bytes();
+
+			if (bytes.hasArray()) {
+				writer.writeBytes(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+			} else {
+				byte[] array = value.toArray();
+
+				writer.writeBytes(array, 0, array.length);
+			}
+		}
+
+		@Override
+		public ByteRange read(ByteBuffer buffer) throws IOException {
+			int length = readLength(buffer);
+			int start = buffer.position();
+
+			buffer.position(start + length);
+			return new ByteRange(buffer, start, start + length);
+		}
+
+	}
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.carne.util.Check;
+
+/**
+ * Streaming writer for the binary {@linkplain DiffResult} encoding (see {@linkplain DiffResultCodec}).
+ * <p>
+ * Entries are encoded as soon as they are passed to the writer. Hence the writer can be used as a
+ * {@linkplain DiffListener} to persist the result of a streaming diff operation without keeping it in memory. The
+ * encoding is completed via {@linkplain #finish(boolean, boolean, boolean)}.
+ * </p>
+ *
+ * @param <T> actual type of the diffed values.
+ */
+public final class DiffResultWriter<T> implements DiffListener<T>, Closeable {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final OutputStream out;
+	private final ValueCodec<T> valueCodec;
+	private final Map<T, Integer> valueTable = new HashMap<>();
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int bufferSize = 0;
+	private int lastPosition = 0;
+	private boolean finished = false;
+
+	DiffResultWriter(OutputStream out, ValueCodec<T> valueCodec) throws IOException {
+		this.out = out;
+		this.valueCodec = valueCodec;
+		for (byte magicByte : DiffResultCodec.MAGIC) {
+			writeByte(magicByte);
+		}
+		writeByte(DiffResultCodec.VERSION);
+		writeByte(valueCodec.typeId());
+	}
+
+	/**
+	 * Encodes a single diff entry.
+	 *
+	 * @param entry the diff entry to encode.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void write(DiffEntry<T> entry) throws IOException {
+		Check.isTrue(!this.finished);
+
+		T value = entry.value();
+		@Nullable Integer valueIndex = this.valueTable.get(value);
+		long positionDelta = (long) entry.position() - this.lastPosition;
+		long header = ((DiffResultCodec.zigZag(positionDelta) + 1) << 2)
+				| (entry.type() == DiffEntry.Type.INSERT ? DiffResultCodec.INSERT_BIT : 0)
+				| (valueIndex == null ? DiffResultCodec.INLINE_BIT : 0);
+
+		writeVarint(header);
+		if (valueIndex != null) {
+			writeVarint(valueIndex.intValue());
+		} else {
+			this.valueCodec.write(this, value);
+			// Both sides stop growing the value table at the same point
+			if (this.valueTable.size() < DiffResultCodec.MAX_VALUE_TABLE_SIZE) {
+				this.valueTable.put(value, this.valueTable.size());
+			}
+		}
+		this.lastPosition = entry.position();
+	}
+
+	/**
+	 * Encodes all entries of a {@linkplain DiffResult} and completes the encoding.
+	 *
+	 * @param result the {@linkplain DiffResult} to encode.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void write(DiffResult<T> result) throws IOException {
+		for (DiffEntry<T> entry : result) {
+			write(entry);
+		}
+		finish(result.isRestrained(), result.isExceeded(), result.isApproximate());
+	}
+
+	@Override
+	public void onEntry(DiffEntry<T> entry) {
+		try {
+			write(entry);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Completes the encoding of a result which is neither exceeded nor approximate.
+	 * <p>
+	 * This is equivalent to {@code finish(restrained, false, false)}.
+	 * </p>
+	 *
+	 * @param restrained whether all diffs have been written (see {@linkplain DiffResult#isRestrained()}).
+	 * @throws IOException if an I/O error occurs.
+	 * @see #finish(boolean, boolean, boolean)
+	 */
+	public void finish(boolean restrained) throws IOException {
+		finish(restrained, false, false);
+	}
+
+	/**
+	 * Completes the encoding.
+	 * <p>
+	 * An encoding which has not been completed is rejected on decoding.
+	 * </p>
+	 *
+	 * @param restrained whether all diffs have been written (see {@linkplain DiffResult#isRestrained()}).
+	 * @param exceeded whether the diff has been stopped due to the edit limit (see
+	 *        {@linkplain DiffResult#isExceeded()}).
+	 * @param approximate whether the diff is not necessarily minimal (see {@linkplain DiffResult#isApproximate()}).
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void finish(boolean restrained, boolean exceeded, boolean approximate) throws IOException {
+		Check.isTrue(!this.finished);
+
+		writeVarint(DiffResultCodec.END_MARKER);
+		writeByte((restrained ? DiffResultCodec.RESTRAINED_FLAG : 0) | (exceeded ? DiffResultCodec.EXCEEDED_FLAG : 0)
+				| (approximate ? DiffResultCodec.APPROXIMATE_FLAG : 0));
+		flushBuffer();
+		this.out.flush();
+		this.finished = true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flushBuffer();
+		} finally {
+			this.out.close();
+		}
+	}
+
+	void writeByte(int b) throws IOException {
+		if (this.bufferSize == this.buffer.length) {
+			flushBuffer();
+		}
+		this.buffer[this.bufferSize] = (byte) b;
+		this.bufferSize++;
+	}
+
+	void writeVarint(long value) throws IOException {
+		long remaining = value;
+
+		while ((remaining & ~0x7fL) != 0) {
+			writeByte((int) ((remaining & 0x7f) | 0x80));
+			remaining >>>= 7;
+		}
+		writeByte((int) remaining);
+	}
+
+	void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+		writeVarint(length);
+		if (length > this.buffer.length - this.bufferSize) {
+			flushBuffer();
+		}
+		if (length > this.buffer.length) {
+			this.out.write(bytes, offset, length);
+		} else {
+			System.arraycopy(bytes, offset, this.buffer, this.bufferSize, length);
+			this.bufferSize += length;
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		if (this.bufferSize > 0) {
+			this.out.write(this.buffer, 0, this.bufferSize);
+			this.bufferSize = 0;
+		}
+	}
+
+}
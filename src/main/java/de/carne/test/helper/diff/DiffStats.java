@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Summary of a diff operation providing the edit counts only.
+ * <p>
+ * Computing the statistics of a diff never retains the diffed values. Hence the memory needed is bounded by the diff
+ * window regardless of the number of differences.
+ * </p>
+ */
+public final class DiffStats {
+
+	private final int inserted;
+	private final int deleted;
+	private final int unchanged;
+	private final int hunks;
+	private final boolean restrained;
+	private final boolean exceeded;
+	private final boolean approximate;
+
+	DiffStats(int inserted, int deleted, int unchanged, int hunks, boolean restrained, boolean exceeded,
+			boolean approximate) {
+		this.inserted = inserted;
+		this.deleted = deleted;
+		this.unchanged = unchanged;
+		this.hunks = hunks;
+		this.restrained = restrained;
+		this.exceeded = exceeded;
+		this.approximate = approximate;
+	}
+
+	/**
+	 * Gets the number of inserted elements.
+	 *
+	 * @return the number of inserted elements.
+	 */
+	public int inserted() {
+		return this.inserted;
+	}
+
+	/**
+	 * Gets the number of deleted elements.
+	 *
+	 * @return the number of deleted elements.
+	 */
+	public int deleted() {
+		return this.deleted;
+	}
+
+	/**
+	 * Gets the number of unchanged elements.
+	 *
+	 * @return the number of unchanged elements.
+	 */
+	public int unchanged() {
+		return this.unchanged;
+	}
+
+	/**
+	 * Gets the number of hunks (groups of adjacent changes).
+	 *
+	 * @return the number of hunks.
+	 */
+	public int hunks() {
+		return this.hunks;
+	}
+
+	/**
+	 * Gets the edit distance (the total number of inserted and deleted elements).
+	 *
+	 * @return the edit distance.
+	 */
+	public int distance() {
+		return this.inserted + this.deleted;
+	}
+
+	/**
+	 * Checks whether the inputs are equal.
+	 *
+	 * @return {@code true} if the inputs are equal.
+	 */
+	public boolean isMatch() {
+		return this.restrained && distance() == 0;
+	}
+
+	/**
+	 * Checks whether these statistics cover the complete inputs.
+	 *
+	 * @return {@code true} if these statistics cover the complete inputs. {@code false} if the number diffs exceeded the
+	 * diff range and the statistics only cover the inputs up to this point.
+	 * @see DiffResult#isRestrained()
+	 */
+	public boolean isRestrained() {
+		return this.restrained;
+	}
+
+	/**
+	 * Checks whether the diff operation has been aborted because the inputs differ by more than the requested maximum
+	 * number of edits.
+	 *
+	 * @return {@code true} if the maximum number of edits has been exceeded.
+	 * @see DiffResult#isExceeded()
+	 */
+	public boolean isExceeded() {
+		return this.exceeded;
+	}
+
+	/**
+	 * Checks whether the diff operation switched to a heuristic because its deadline passed or it has been cancelled.
+	 *
+	 * @return {@code true} if these statistics are approximate (the counts are valid but not necessarily minimal).
+	 * @see DiffResult#isApproximate()
+	 */
+	public boolean isApproximate() {
+		return this.approximate;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = this.inserted;
+
+		hash = 31 * hash + this.deleted;
+		hash = 31 * hash + this.unchanged;
+		hash = 31 * hash + this.hunks;
+		hash = 31 * hash + Boolean.hashCode(this.restrained);
+		hash = 31 * hash + Boolean.hashCode(this.exceeded);
+		hash = 31 * hash + Boolean.hashCode(this.approximate);
+		return hash;
+	}
+
+	@Override
+	public boolean equals(@Nullable Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof DiffStats)) {
+			return false;
+		}
+
+		DiffStats stats = (DiffStats) obj;
+
+		return this.inserted == stats.inserted && this.deleted == stats.deleted && this.unchanged == stats.unchanged
+				&& this.hunks == stats.hunks && this.restrained == stats.restrained && this.exceeded == stats.exceeded
+				&& this.approximate == stats.approximate;
+	}
+
+	@Override
+	public String toString() {
+		return "+" + this.inserted + " -" + this.deleted + " =" + this.unchanged + " (hunks: " + this.hunks
+				+ ", distance: " + distance() + (this.restrained ? "" : ", incomplete")
+				+ (this.approximate ? ", approximate" : "") + ")";
+	}
+
+}
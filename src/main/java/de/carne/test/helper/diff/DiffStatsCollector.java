@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+/**
+ * Collects the {@linkplain DiffStats} of a diff operation entry by entry (see
+ * {@linkplain Differ#flush(DiffStatsCollector)}).
+ */
+final class DiffStatsCollector {
+
+	private int inserted = 0;
+	private int deleted = 0;
+	private int hunks = 0;
+	private int hunkEnd = -1;
+
+	/**
+	 * Adds an entry.
+	 * <p>
+	 * Entries must be added in ascending position order.
+	 * </p>
+	 *
+	 * @param position the entry's position.
+	 * @param type the entry's type.
+	 */
+	public void add(int position, DiffEntry.Type type) {
+		if (position > this.hunkEnd) {
+			this.hunks++;
+		}
+		if (type == DiffEntry.Type.DELETE) {
+			this.deleted++;
+			this.hunkEnd = Math.max(this.hunkEnd, position + 1);
+		} else {
+			this.inserted++;
+			this.hunkEnd = Math.max(this.hunkEnd, position);
+		}
+	}
+
+	/**
+	 * Creates the {@linkplain DiffStats} for the entries added so far.
+	 *
+	 * @param differ the {@linkplain Differ} which provided the entries.
+	 * @return the created {@linkplain DiffStats}.
+	 */
+	public DiffStats toStats(Differ<?> differ) {
+		return new DiffStats(this.inserted, this.deleted, differ.consumedLeft() - this.deleted, this.hunks,
+				differ.isRestrained(), differ.isExceeded(), differ.isApproximate());
+	}
+
+}
@@ -16,141 +16,587 @@
  */
 package de.carne.test.helper.diff;
 
-import java.util.LinkedList;
-import java.util.Objects;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.function.UnaryOperator;
 
 import org.eclipse.jdt.annotation.Nullable;
 
 import de.carne.test.helper.diff.DiffEntry.Type;
 import de.carne.util.Check;
 
-class Differ<T> {
-
-	private final int range;
-	private final @Nullable T[] left;
-	private final @Nullable T[] right;
+abstract class Differ<T> {
+
+	private static final int MIN_ANCHOR_RANGE = 16;
+	private static final int MAX_HISTOGRAM_CHAIN = 64;
+	private static final int INITIAL_STACK_SIZE = 64;
+
+	private int range;
+	private final int maxRange;
+	private final boolean resync;
+	private final int parallelThreshold;
+	private final DiffAlgorithm algorithm;
+	private final int maxEdits;
+	private final long timeout;
+	private final long start = System.nanoTime();
+	private final BooleanSupplier cancellation;
 	private int leftLength = 0;
 	private int rightLength = 0;
 	private boolean restrained = true;
 	private int position = 0;
 	private int maxMatchPosition = -1;
-	private LinkedList<DiffEntry<T>> diffs = new LinkedList<>();
-	private final int[] forwardTrace;
-	private final int[] reverseTrace;
-
-	private Differ(int range, @Nullable T[] left, @Nullable T[] right) {
+	private int flushedCount = 0;
+	private boolean exceeded = false;
+	private boolean valueless = false;
+	private volatile boolean approximate = false;
+	private final DiffEntries<T> diffs = new DiffEntries<>();
+	private final DiffBuffers buffers;
+	private Search search;
+
+	protected Differ(int range, DiffOptions options, DiffBuffers buffers) {
 		this.range = range;
-		this.left = left;
-		this.right = right;
-		this.forwardTrace = new int[(this.range << 1) + 2];
-		this.reverseTrace = new int[this.forwardTrace.length];
+		this.maxRange = Math.max(range, options.maxWindowSize());
+		this.resync = options.isStreaming();
+		this.parallelThreshold = options.parallelThreshold();
+		this.algorithm = options.algorithm();
+		this.maxEdits = options.maxEdits();
+		this.timeout = options.timeout().toNanos();
+		this.cancellation = options.cancellation();
+		this.buffers = buffers;
+		this.search = newSearch();
 	}
 
-	public static Differ<Character> characterDiffer(int range) {
-		return new Differ<>(range, new @Nullable Character[range], new @Nullable Character[range]);
+	public static CharDiffer characterDiffer(int range, DiffOptions options, DiffBuffers buffers) {
+		return new CharDiffer(range, options, buffers);
 	}
 
-	public static Differ<String> lineDiffer(int range) {
-		return new Differ<>(range, new @Nullable String[range], new @Nullable String[range]);
+	public static ObjectDiffer<String> lineDiffer(DiffOptions options, DiffBuffers buffers) {
+		return new ObjectDiffer<>(options.windowSize(), options, buffers, Equivalence.natural(),
+				options.lineNormalizer());
 	}
 
-	public boolean isRestrained() {
-		return this.restrained;
+	public static <T> ObjectDiffer<T> sequenceDiffer(int range, DiffOptions options, DiffBuffers buffers,
+			Equivalence<? super T> equivalence) {
+		return new ObjectDiffer<>(range, options, buffers, equivalence, UnaryOperator.identity());
 	}
 
-	public boolean feedLeft(T entry) {
-		Check.isTrue(this.leftLength < this.range);
+	protected DiffBuffers buffers() {
+		return this.buffers;
+	}
 
-		this.left[this.leftLength] = entry;
-		this.leftLength++;
-		return this.leftLength < this.range;
+	protected int range() {
+		return this.range;
 	}
 
-	public boolean feedLeft(T[] entries) {
-		for (T entry : entries) {
-			if (!feedLeft(entry)) {
-				break;
-			}
-		}
-		return this.leftLength < this.range;
+	protected int leftLength() {
+		return this.leftLength;
 	}
 
-	public boolean feedLeft(Iterable<T> entries) {
-		for (T entry : entries) {
-			if (!feedLeft(entry)) {
-				break;
-			}
-		}
-		return this.leftLength < this.range;
+	protected int rightLength() {
+		return this.rightLength;
 	}
 
-	public boolean feedRight(T entry) {
+	protected int nextLeft() {
+		Check.isTrue(this.leftLength < this.range);
+
+		int l = this.leftLength;
+
+		this.leftLength++;
+		return l;
+	}
+
+	protected int nextRight() {
 		Check.isTrue(this.rightLength < this.range);
 
-		this.right[this.rightLength] = entry;
+		int r = this.rightLength;
+
 		this.rightLength++;
-		return this.rightLength < this.range;
+		return r;
 	}
 
-	public boolean feedRight(T[] entries) {
-		for (T entry : entries) {
-			if (!feedRight(entry)) {
-				break;
-			}
-		}
-		return this.rightLength < this.range;
+	protected int nextLeft(int count) {
+		Check.isTrue(this.leftLength + count <= this.range);
+
+		int l = this.leftLength;
+
+		this.leftLength += count;
+		return l;
 	}
 
-	public boolean feedRight(Iterable<T> entries) {
-		for (T entry : entries) {
-			if (!feedRight(entry)) {
-				break;
-			}
-		}
-		return this.rightLength < this.range;
+	protected int nextRight(int count) {
+		Check.isTrue(this.rightLength + count <= this.range);
+
+		int r = this.rightLength;
+
+		this.rightLength += count;
+		return r;
+	}
+
+	protected abstract T leftValue(int l);
+
+	protected abstract T rightValue(int r);
+
+	protected abstract int leftId(int l);
+
+	protected abstract int rightId(int r);
+
+	protected abstract boolean lrEquals(int l, int r);
+
+	protected abstract void shift(int leftStart, int leftCount, int rightStart, int rightCount);
+
+	protected abstract void resize(int newRange);
+
+	public boolean isRestrained() {
+		return this.restrained;
+	}
+
+	public void discardValues() {
+		this.valueless = true;
+	}
+
+	public int consumedLeft() {
+		return this.position + this.leftLength;
+	}
+
+	public boolean isExceeded() {
+		return this.exceeded;
+	}
+
+	public boolean isApproximate() {
+		return this.approximate;
+	}
+
+	private boolean isExpired() {
+		return (this.timeout > 0 && System.nanoTime() - this.start >= this.timeout) || this.cancellation.getAsBoolean();
 	}
 
 	public DiffResult<T> toResult() {
-		return new DiffResult<>(this.diffs, isRestrained());
+		return new DiffResult<>(this.diffs, isRestrained(), isExceeded(), isApproximate());
+	}
+
+	public void flush(DiffListener<T> listener) {
+		int diffCount = this.diffs.size();
+
+		for (int diffIndex = 0; diffIndex < diffCount; diffIndex++) {
+			listener.onEntry(this.diffs.entryAt(diffIndex));
+		}
+		this.diffs.removeLast(diffCount);
+		this.flushedCount += diffCount;
+	}
+
+	public void flush(DiffStatsCollector collector) {
+		int diffCount = this.diffs.size();
+
+		for (int diffIndex = 0; diffIndex < diffCount; diffIndex++) {
+			collector.add(this.diffs.position(diffIndex), this.diffs.type(diffIndex));
+		}
+		this.diffs.removeLast(diffCount);
+		this.flushedCount += diffCount;
 	}
 
 	public void run(boolean finish) {
 		if (this.restrained) {
-			run(0, this.leftLength, 0, this.rightLength);
+			search(0, this.leftLength, 0, this.rightLength, finish);
 		}
-		if (finish || this.maxMatchPosition < 0) {
-			this.position += this.leftLength;
-			this.leftLength = 0;
-			this.rightLength = 0;
-			this.restrained = this.maxMatchPosition >= 0;
+		if (finish || this.exceeded) {
+			commit();
 		} else {
-			DiffEntry<T> lastEntry;
 			int leftRemaining = 0;
 			int rightRemaining = 0;
-
-			while ((lastEntry = this.diffs.peekLast()) != null && lastEntry.position() > this.maxMatchPosition) {
-				if (lastEntry.type() == DiffEntry.Type.DELETE) {
+			for (int entryIndex = this.diffs.size() - 1; entryIndex >= 0; entryIndex--) {
+				if (this.diffs.position(entryIndex) < this.maxMatchPosition) {
+					break;
+				}
+				if (this.diffs.type(entryIndex) == DiffEntry.Type.DELETE) {
 					leftRemaining++;
 				} else {
 					rightRemaining++;
 				}
-				this.diffs.removeLast();
 			}
-			System.arraycopy(this.left, this.leftLength - leftRemaining, this.left, 0, leftRemaining);
-			System.arraycopy(this.right, this.rightLength - rightRemaining, this.right, 0, rightRemaining);
-			this.position += this.leftLength - leftRemaining;
-			this.leftLength = leftRemaining;
-			this.rightLength = leftRemaining;
-			this.restrained = this.leftLength < this.range && this.rightLength < this.range;
+			if (leftRemaining < this.range && rightRemaining < this.range) {
+				carry(leftRemaining, rightRemaining);
+			} else if (this.range < this.maxRange) {
+				// The current window is exhausted without any match; widen it and retry
+				carry(leftRemaining, rightRemaining);
+				grow(Math.min(this.range << 1, this.maxRange));
+			} else {
+				// Accept the current window as is and resynchronize behind it (if requested)
+				commit();
+				this.maxMatchPosition = this.position;
+				this.restrained = this.restrained && this.resync;
+			}
+			// Only the committed entries count towards the edit limit (the carried ones are diffed again)
+			if (this.diffs.size() + this.flushedCount > this.maxEdits) {
+				this.exceeded = true;
+				this.restrained = false;
+			}
 		}
 	}
 
-	@SuppressWarnings("java:S3776")
-	private void run(int leftStart, int leftEnd, int rightStart, int rightEnd) {
-		Snake snake = findSnake(leftStart, leftEnd, rightStart, rightEnd);
+	private void commit() {
+		shift(this.leftLength, 0, this.rightLength, 0);
+		this.position += this.leftLength;
+		this.leftLength = 0;
+		this.rightLength = 0;
+	}
+
+	private void carry(int leftRemaining, int rightRemaining) {
+		this.diffs.removeLast(leftRemaining + rightRemaining);
+		shift(this.leftLength - leftRemaining, leftRemaining, this.rightLength - rightRemaining, rightRemaining);
+		this.position += this.leftLength - leftRemaining;
+		this.leftLength = leftRemaining;
+		this.rightLength = rightRemaining;
+	}
+
+	private void grow(int newRange) {
+		resize(newRange);
+		this.range = newRange;
+		this.search = newSearch();
+	}
+
+	private Search newSearch() {
+		int traceSize = traceSize(this.range);
 
-		if (snake == null || (snake.start() == leftEnd && snake.diag() == leftEnd - rightEnd)
-				|| (snake.end() == leftStart && snake.diag() == leftStart - rightStart)) {
+		return new Search(this.buffers, this.buffers.ints(DiffBuffers.FORWARD_TRACE, traceSize),
+				this.buffers.ints(DiffBuffers.REVERSE_TRACE, traceSize), this.diffs);
+	}
+
+	private static int traceSize(int searchRange) {
+		return (searchRange << 1) + 2;
+	}
+
+	private void search(int leftStart, int leftEnd, int rightStart, int rightEnd, boolean finish) {
+		this.search.maxMatchPosition = this.maxMatchPosition;
+		// The trailing entries of a non-final window are not final yet; hence the edit limit is only enforced during
+		// the final search and checked for the committed entries otherwise (see run)
+		this.search.editLimit = (finish ? this.maxEdits - this.flushedCount : DiffOptions.UNBOUNDED_EDITS);
+		this.search.exceeded = false;
+		this.search.run(leftStart, leftEnd, rightStart, rightEnd);
+		this.maxMatchPosition = this.search.maxMatchPosition;
+		if (this.search.exceeded) {
+			// Edit limit exceeded; keep the partial result and stop diffing
+			this.exceeded = true;
+			this.restrained = false;
+		}
+	}
+
+	private final class Search {
+
+		private final @Nullable DiffBuffers searchBuffers;
+		private final int[] forwardTrace;
+		private final int[] reverseTrace;
+		private final DiffEntries<T> diffs;
+		private int maxMatchPosition = -1;
+		// Maximum number of entries this search may collect before aborting
+		private int editLimit = Integer.MAX_VALUE;
+		private boolean exceeded = false;
+		// Pending regions (4 ints each: leftStart, leftEnd, rightStart, rightEnd); processed LIFO
+		private int[] stack;
+		private int stackSize = 0;
+		// Result of the last successful findSnake call
+		private int snakeStart = 0;
+		private int snakeEnd = 0;
+		private int snakeDiag = 0;
+
+		Search(@Nullable DiffBuffers searchBuffers, int[] forwardTrace, int[] reverseTrace, DiffEntries<T> diffs) {
+			this.searchBuffers = searchBuffers;
+			this.forwardTrace = forwardTrace;
+			this.reverseTrace = reverseTrace;
+			this.diffs = diffs;
+			this.stack = (searchBuffers != null ? searchBuffers.ints(DiffBuffers.WORK_STACK, INITIAL_STACK_SIZE)
+					: new int[INITIAL_STACK_SIZE]);
+		}
+
+		private void push(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+			if (leftStart < leftEnd || rightStart < rightEnd) {
+				if (this.stackSize + 4 > this.stack.length) {
+					int newStackSize = this.stack.length << 1;
+					DiffBuffers buffers = this.searchBuffers;
+
+					this.stack = (buffers != null ? buffers.ints(DiffBuffers.WORK_STACK, newStackSize)
+							: Arrays.copyOf(this.stack, newStackSize));
+				}
+				this.stack[this.stackSize] = leftStart;
+				this.stack[this.stackSize + 1] = leftEnd;
+				this.stack[this.stackSize + 2] = rightStart;
+				this.stack[this.stackSize + 3] = rightEnd;
+				this.stackSize += 4;
+			}
+		}
+
+		private void run(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+			push(leftStart, leftEnd, rightStart, rightEnd);
+			while (this.stackSize > 0) {
+				this.stackSize -= 4;
+				runRegion(this.stack[this.stackSize], this.stack[this.stackSize + 1], this.stack[this.stackSize + 2],
+						this.stack[this.stackSize + 3]);
+				if (this.diffs.size() > this.editLimit) {
+					exceed();
+				}
+			}
+		}
+
+		private void exceed() {
+			this.exceeded = true;
+			this.stackSize = 0;
+		}
+
+		private boolean isParallel(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+			return Differ.this.parallelThreshold > 0
+					&& (leftEnd - leftStart) + (rightEnd - rightStart) >= Differ.this.parallelThreshold;
+		}
+
+		private void merge(Search search) {
+			this.diffs.addAll(search.diffs);
+			this.maxMatchPosition = Math.max(this.maxMatchPosition, search.maxMatchPosition);
+		}
+
+		@SuppressWarnings("java:S3776")
+		private void runRegion(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+			int prefixEnd = leftStart;
+			int suffixStart = leftEnd;
+			int rightPrefixEnd = rightStart;
+			int rightSuffixStart = rightEnd;
+
+			// Strip common prefix and suffix and feed only the remaining core into the snake search
+			while (prefixEnd < suffixStart && rightPrefixEnd < rightSuffixStart && lrEquals(prefixEnd, rightPrefixEnd)) {
+				prefixEnd++;
+				rightPrefixEnd++;
+			}
+			while (prefixEnd < suffixStart && rightPrefixEnd < rightSuffixStart
+					&& lrEquals(suffixStart - 1, rightSuffixStart - 1)) {
+				suffixStart--;
+				rightSuffixStart--;
+			}
+			if (prefixEnd > leftStart) {
+				this.maxMatchPosition = Math.max(this.maxMatchPosition, Differ.this.position + prefixEnd);
+			}
+			// The length difference of the remaining core is a lower bound for the edits still to come
+			int minEdits = Math.abs((suffixStart - prefixEnd) - (rightSuffixStart - rightPrefixEnd));
+
+			if (this.diffs.size() + minEdits > this.editLimit) {
+				exceed();
+			} else if (prefixEnd < suffixStart || rightPrefixEnd < rightSuffixStart) {
+				runAnchored(prefixEnd, suffixStart, rightPrefixEnd, rightSuffixStart);
+			}
+			if (suffixStart < leftEnd) {
+				this.maxMatchPosition = Math.max(this.maxMatchPosition, Differ.this.position + leftEnd);
+			}
+		}
+
+		private void runAnchored(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+			boolean anchored = false;
+
+			if ((leftEnd - leftStart) + (rightEnd - rightStart) >= MIN_ANCHOR_RANGE) {
+				switch (Differ.this.algorithm) {
+				case PATIENCE:
+					anchored = runPatience(leftStart, leftEnd, rightStart, rightEnd);
+					break;
+				case HISTOGRAM:
+					anchored = runHistogram(leftStart, leftEnd, rightStart, rightEnd);
+					break;
+				default:
+					// Myers only
+				}
+			}
+			if (!anchored) {
+				runCore(leftStart, leftEnd, rightStart, rightEnd);
+			}
+		}
+
+		@SuppressWarnings("java:S3776")
+		private boolean runPatience(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+			int leftRange = leftEnd - leftStart;
+			int capacity = leftRange + (rightEnd - rightStart);
+			IdTable ids = new IdTable(capacity);
+			int[] leftCounts = new int[capacity];
+			int[] rightCounts = new int[capacity];
+			int[] rightIndices = new int[capacity];
+
+			for (int l = leftStart; l < leftEnd; l++) {
+				leftCounts[ids.add(leftId(l))]++;
+			}
+			for (int r = rightStart; r < rightEnd; r++) {
+				int id = ids.add(rightId(r));
+
+				rightCounts[id]++;
+				rightIndices[id] = r;
+			}
+
+			// Collect the elements unique in both inputs (in left order)
+			int[] uniqueLefts = new int[leftRange];
+			int[] uniqueRights = new int[leftRange];
+			int uniqueCount = 0;
+
+			for (int l = leftStart; l < leftEnd; l++) {
+				int id = ids.get(leftId(l));
+
+				if (leftCounts[id] == 1 && rightCounts[id] == 1) {
+					uniqueLefts[uniqueCount] = l;
+					uniqueRights[uniqueCount] = rightIndices[id];
+					uniqueCount++;
+				}
+			}
+			if (uniqueCount == 0) {
+				return false;
+			}
+
+			// Determine the longest increasing subsequence of the unique elements' right indices
+			int[] tails = new int[uniqueCount];
+			int[] predecessors = new int[uniqueCount];
+			int anchorCount = 0;
+
+			for (int unique = 0; unique < uniqueCount; unique++) {
+				int low = 0;
+				int high = anchorCount;
+
+				while (low < high) {
+					int mid = (low + high) >>> 1;
+
+					if (uniqueRights[tails[mid]] < uniqueRights[unique]) {
+						low = mid + 1;
+					} else {
+						high = mid;
+					}
+				}
+				predecessors[unique] = (low > 0 ? tails[low - 1] : -1);
+				tails[low] = unique;
+				if (low == anchorCount) {
+					anchorCount++;
+				}
+			}
+
+			// Push the regions between the anchors in reverse order (the predecessor chain yields the anchors backwards)
+			int l = leftEnd;
+			int r = rightEnd;
+
+			for (int unique = tails[anchorCount - 1]; unique >= 0; unique = predecessors[unique]) {
+				int anchorLeft = uniqueLefts[unique];
+				int anchorRight = uniqueRights[unique];
+
+				push(anchorLeft + 1, l, anchorRight + 1, r);
+				this.maxMatchPosition = Math.max(this.maxMatchPosition, Differ.this.position + anchorLeft + 1);
+				l = anchorLeft;
+				r = anchorRight;
+			}
+			push(leftStart, l, rightStart, r);
+			return true;
+		}
+
+		@SuppressWarnings("java:S3776")
+		private boolean runHistogram(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+			int leftRange = leftEnd - leftStart;
+			IdTable ids = new IdTable(leftRange);
+			int[] counts = new int[leftRange];
+			int[] heads = new int[leftRange];
+			int[] chain = new int[leftRange];
+
+			for (int l = leftStart; l < leftEnd; l++) {
+				int id = ids.add(leftId(l));
+
+				chain[l - leftStart] = (counts[id] > 0 ? heads[id] : -1);
+				heads[id] = l;
+				counts[id]++;
+			}
+
+			// Find the longest common region with the lowest occurrence count
+			int bestLeft = -1;
+			int bestRight = -1;
+			int bestLength = 0;
+			int bestCount = MAX_HISTOGRAM_CHAIN;
+			int r = rightStart;
+
+			while (r < rightEnd) {
+				int id = ids.get(rightId(r));
+				int nextR = r + 1;
+
+				if (id >= 0 && counts[id] <= bestCount) {
+					for (int l = heads[id]; l >= 0; l = chain[l - leftStart]) {
+						int regionLeft = l;
+						int regionRight = r;
+						int regionEnd = l + 1;
+						int regionRightEnd = r + 1;
+						int regionCount = counts[id];
+
+						while (regionLeft > leftStart && regionRight > rightStart
+								&& lrEquals(regionLeft - 1, regionRight - 1)) {
+							regionLeft--;
+							regionRight--;
+							regionCount = Math.min(regionCount, counts[ids.get(leftId(regionLeft))]);
+						}
+						while (regionEnd < leftEnd && regionRightEnd < rightEnd && lrEquals(regionEnd, regionRightEnd)) {
+							regionCount = Math.min(regionCount, counts[ids.get(leftId(regionEnd))]);
+							regionEnd++;
+							regionRightEnd++;
+						}
+						nextR = Math.max(nextR, regionRightEnd);
+
+						int regionLength = regionEnd - regionLeft;
+
+						if (regionCount < bestCount || (regionCount == bestCount && regionLength > bestLength)) {
+							bestLeft = regionLeft;
+							bestRight = regionRight;
+							bestLength = regionLength;
+							bestCount = regionCount;
+						}
+					}
+				}
+				r = nextR;
+			}
+			if (bestLeft < 0) {
+				return false;
+			}
+			push(bestLeft + bestLength, leftEnd, bestRight + bestLength, rightEnd);
+			push(leftStart, bestLeft, rightStart, bestRight);
+			this.maxMatchPosition = Math.max(this.maxMatchPosition, Differ.this.position + bestLeft + bestLength);
+			return true;
+		}
+
+		@SuppressWarnings("java:S3776")
+		private void runCore(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+			boolean snake = !Differ.this.approximate && findSnake(leftStart, leftEnd, rightStart, rightEnd);
+
+			// If the edit limit has been exceeded during the snake search, the region is abandoned
+			if (!this.exceeded && (!snake || (this.snakeStart == leftEnd && this.snakeDiag == leftEnd - rightEnd)
+					|| (this.snakeEnd == leftStart && this.snakeDiag == leftStart - rightStart))) {
+				// Once the deadline has passed, regions are matched via unique anchors and greedily in between
+				if (!Differ.this.approximate
+						|| (leftEnd - leftStart) + (rightEnd - rightStart) < MIN_ANCHOR_RANGE
+						|| !runPatience(leftStart, leftEnd, rightStart, rightEnd)) {
+					runGreedy(leftStart, leftEnd, rightStart, rightEnd);
+				}
+			} else if (snake) {
+				int leftSnakeStart = this.snakeStart;
+				int rightSnakeStart = this.snakeStart - this.snakeDiag;
+				int leftSnakeEnd = this.snakeEnd;
+				int rightSnakeEnd = this.snakeEnd - this.snakeDiag;
+
+				if (isParallel(leftStart, leftSnakeStart, rightStart, rightSnakeStart)
+						|| isParallel(leftSnakeEnd, leftEnd, rightSnakeEnd, rightEnd)) {
+					int taskEditLimit = this.editLimit - this.diffs.size();
+					SearchTask head = new SearchTask(leftStart, leftSnakeStart, rightStart, rightSnakeStart,
+							taskEditLimit);
+					SearchTask tail = new SearchTask(leftSnakeEnd, leftEnd, rightSnakeEnd, rightEnd, taskEditLimit);
+
+					ForkJoinTask.invokeAll(head, tail);
+					merge(head.search);
+					merge(tail.search);
+					if (head.search.exceeded || tail.search.exceeded) {
+						exceed();
+					}
+				} else {
+					push(leftSnakeEnd, leftEnd, rightSnakeEnd, rightEnd);
+					push(leftStart, leftSnakeStart, rightStart, rightSnakeStart);
+				}
+				if (leftSnakeEnd > leftSnakeStart) {
+					this.maxMatchPosition = Math.max(this.maxMatchPosition, Differ.this.position + leftSnakeEnd);
+				}
+			}
+		}
+
+		private void runGreedy(int leftStart, int leftEnd, int rightStart, int rightEnd) {
 			int l = leftStart;
 			int r = rightStart;
 
@@ -158,8 +604,8 @@ class Differ<T> {
 				if (l < leftEnd && r < rightEnd && lrEquals(l, r)) {
 					l++;
 					r++;
-					this.maxMatchPosition = Math.max(this.maxMatchPosition, this.position + l);
-				} else if (leftEnd - leftStart > rightEnd - rightStart) {
+					this.maxMatchPosition = Math.max(this.maxMatchPosition, Differ.this.position + l);
+				} else if (r == rightEnd || (l < leftEnd && leftEnd - leftStart > rightEnd - rightStart)) {
 					delete(l);
 					l++;
 				} else {
@@ -167,129 +613,133 @@ class Differ<T> {
 					r++;
 				}
 			}
-		} else {
-			run(leftStart, snake.start(), rightStart, snake.start() - snake.diag());
-			run(snake.end(), leftEnd, snake.end() - snake.diag(), rightEnd);
-
-			int matchCount = snake.end() - snake.start();
+		}
 
-			if (matchCount > 0) {
-				this.maxMatchPosition = Math.max(this.maxMatchPosition, this.position + matchCount);
+		private void delete(int l) {
+			if (Differ.this.valueless) {
+				this.diffs.add(Differ.this.position + l, Type.DELETE);
+			} else {
+				this.diffs.add(Differ.this.position + l, Type.DELETE, leftValue(l));
 			}
 		}
-	}
 
-	private void delete(int l) {
-		this.diffs.add(new DiffEntry<>(this.position + l, Type.DELETE, Objects.requireNonNull(this.left[l])));
-	}
-
-	private void insert(int l, int r) {
-		this.diffs.add(new DiffEntry<>(this.position + l, Type.INSERT, Objects.requireNonNull(this.right[r])));
-	}
+		private void insert(int l, int r) {
+			if (Differ.this.valueless) {
+				this.diffs.add(Differ.this.position + l, Type.INSERT);
+			} else {
+				this.diffs.add(Differ.this.position + l, Type.INSERT, rightValue(r));
+			}
+		}
 
-	@SuppressWarnings("java:S3776")
-	@Nullable
-	private Snake findSnake(int leftStart, int leftEnd, int rightStart, int rightEnd) {
-		Snake snake = null;
-		int leftRange = leftEnd - leftStart;
-		int rightRange = rightEnd - rightStart;
-
-		if (leftRange > 0 && rightRange > 0) {
-			int delta = leftRange - rightRange;
-			int sum = leftRange + rightRange;
-			int offset = (sum % 2 == 0 ? sum : sum + 1) >> 1;
-
-			this.forwardTrace[1 + offset] = leftStart;
-			this.reverseTrace[1 + offset] = leftEnd + 1;
-			for (int d = 0; d <= offset && snake == null; d++) {
-				for (int k = -d; k <= d && snake == null; k += 2) {
-					int t = k + offset;
-
-					if (k == -d || (k != d && this.forwardTrace[t - 1] < this.forwardTrace[t + 1])) {
-						this.forwardTrace[t] = this.forwardTrace[t + 1];
-					} else {
-						this.forwardTrace[t] = this.forwardTrace[t - 1] + 1;
+		@SuppressWarnings("java:S3776")
+		private boolean findSnake(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+			boolean snake = false;
+			int leftRange = leftEnd - leftStart;
+			int rightRange = rightEnd - rightStart;
+
+			if (leftRange > 0 && rightRange > 0) {
+				int delta = leftRange - rightRange;
+				int sum = leftRange + rightRange;
+				int offset = (sum % 2 == 0 ? sum : sum + 1) >> 1;
+
+				this.forwardTrace[1 + offset] = leftStart;
+				this.reverseTrace[1 + offset] = leftEnd + 1;
+				for (int d = 0; d <= offset && !snake && !this.exceeded && !Differ.this.approximate; d++) {
+					for (int k = -d; k <= d && !snake; k += 2) {
+						int t = k + offset;
+
+						if (k == -d || (k != d && this.forwardTrace[t - 1] < this.forwardTrace[t + 1])) {
+							this.forwardTrace[t] = this.forwardTrace[t + 1];
+						} else {
+							this.forwardTrace[t] = this.forwardTrace[t - 1] + 1;
+						}
+
+						int l = this.forwardTrace[t];
+						int r = l - leftStart + rightStart - k;
+
+						while (l < leftEnd && r < rightEnd && lrEquals(l, r)) {
+							l++;
+							r++;
+							this.forwardTrace[t] = l;
+						}
+						if (delta % 2 != 0 && delta - d <= k && k <= delta + d
+								&& this.reverseTrace[t - delta] <= this.forwardTrace[t]) {
+							snake = setSnake(this.reverseTrace[t - delta], k + leftStart - rightStart, leftEnd, rightEnd);
+						}
 					}
-
-					int l = this.forwardTrace[t];
-					int r = l - leftStart + rightStart - k;
-
-					while (l < leftEnd && r < rightEnd && lrEquals(l, r)) {
-						l++;
-						r++;
-						this.forwardTrace[t] = l;
+					for (int k = delta - d; k <= delta + d && !snake; k += 2) {
+						int t = k + offset - delta;
+
+						if (k == delta - d || (k != delta + d && this.reverseTrace[t + 1] <= this.reverseTrace[t - 1])) {
+							this.reverseTrace[t] = this.reverseTrace[t + 1] - 1;
+						} else {
+							this.reverseTrace[t] = this.reverseTrace[t - 1];
+						}
+
+						int l = this.reverseTrace[t] - 1;
+						int r = l - leftStart + rightStart - k;
+
+						while (l >= leftStart && r >= rightStart && lrEquals(l, r)) {
+							this.reverseTrace[t] = l;
+							l--;
+							r--;
+						}
+						if (delta % 2 == 0 && -d <= k && k <= d && this.reverseTrace[t] <= this.forwardTrace[t + delta]) {
+							snake = setSnake(this.reverseTrace[t], k + leftStart - rightStart, leftEnd, rightEnd);
+						}
 					}
-					if (delta % 2 != 0 && delta - d <= k && k <= delta + d
-							&& this.reverseTrace[t - delta] <= this.forwardTrace[t]) {
-						snake = getSnake(this.reverseTrace[t - delta], k + leftStart - rightStart, leftEnd, rightEnd);
+					// Without an overlap after step d the region needs at least 2d+1 edits
+					if (!snake && this.diffs.size() + (d << 1) + 1 > this.editLimit) {
+						exceed();
 					}
-				}
-				for (int k = delta - d; k <= delta + d && snake == null; k += 2) {
-					int t = k + offset - delta;
-
-					if (k == delta - d || (k != delta + d && this.reverseTrace[t + 1] <= this.reverseTrace[t - 1])) {
-						this.reverseTrace[t] = this.reverseTrace[t + 1] - 1;
-					} else {
-						this.reverseTrace[t] = this.reverseTrace[t - 1];
-					}
-
-					int l = this.reverseTrace[t] - 1;
-					int r = l - leftStart + rightStart - k;
-
-					while (l >= leftStart && r >= rightStart && lrEquals(l, r)) {
-						this.reverseTrace[t] = l;
-						l--;
-						r--;
-					}
-					if (delta % 2 == 0 && -d <= k && k <= d && this.reverseTrace[t] <= this.forwardTrace[t + delta]) {
-						snake = getSnake(this.reverseTrace[t], k + leftStart - rightStart, leftEnd, rightEnd);
+					// Stop searching as soon as the deadline has passed (or the diff has been cancelled)
+					if (!snake && isExpired()) {
+						Differ.this.approximate = true;
 					}
 				}
 			}
+			return snake;
 		}
-		return snake;
-	}
 
-	private Snake getSnake(int start, int diag, int leftEnd, int rightEnd) {
-		int end = start;
+		private boolean setSnake(int start, int diag, int leftEnd, int rightEnd) {
+			int end = start;
 
-		while (end - diag < rightEnd && end < leftEnd && lrEquals(end, end - diag)) {
-			end++;
+			while (end - diag < rightEnd && end < leftEnd && lrEquals(end, end - diag)) {
+				end++;
+			}
+			this.snakeStart = start;
+			this.snakeEnd = end;
+			this.snakeDiag = diag;
+			return true;
 		}
-		return new Snake(start, end, diag);
-	}
 
-	private boolean lrEquals(int l, int r) {
-		return Objects.requireNonNull(this.left[l]).equals(Objects.requireNonNull(this.right[r]));
 	}
 
-	private static final class Snake {
+	private final class SearchTask extends RecursiveAction {
 
-		private final int start;
-		private final int end;
-		private final int diag;
+		private static final long serialVersionUID = 1L;
 
-		Snake(int start, int end, int diag) {
-			this.start = start;
-			this.end = end;
-			this.diag = diag;
-		}
+		private final int leftStart;
+		private final int leftEnd;
+		private final int rightStart;
+		private final int rightEnd;
+		private final transient Search search;
 
-		public int start() {
-			return this.start;
-		}
+		SearchTask(int leftStart, int leftEnd, int rightStart, int rightEnd, int editLimit) {
+			this.leftStart = leftStart;
+			this.leftEnd = leftEnd;
+			this.rightStart = rightStart;
+			this.rightEnd = rightEnd;
 
-		public int end() {
-			return this.end;
-		}
+			int traceSize = traceSize(Math.max(leftEnd - leftStart, rightEnd - rightStart));
 
-		public int diag() {
-			return this.diag;
+			this.search = new Search(null, new int[traceSize], new int[traceSize], new DiffEntries<>());
+			this.search.editLimit = editLimit;
 		}
 
 		@Override
-		public String toString() {
-			return this.start + "-" + this.end + ":" + this.diag;
+		protected void compute() {
+			this.search.run(this.leftStart, this.leftEnd, this.rightStart, this.rightEnd);
 		}
 
 	}
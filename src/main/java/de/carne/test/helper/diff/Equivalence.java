@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.util.Objects;
+
+/**
+ * Strategy for comparing and hashing the elements of a diffed sequence.
+ * <p>
+ * Implementations must be consistent: equivalent elements must have the same hash.
+ * </p>
+ *
+ * @param <T> actual type of the compared elements.
+ * @see Diff#sequences(java.util.List, java.util.List, Equivalence)
+ */
+public interface Equivalence<T> {
+
+	/**
+	 * Checks whether two elements are equivalent.
+	 *
+	 * @param element1 the 1st element to check.
+	 * @param element2 the 2nd element to check.
+	 * @return {@code true} if the elements are equivalent.
+	 */
+	boolean equivalent(T element1, T element2);
+
+	/**
+	 * Calculates the hash of an element.
+	 *
+	 * @param element the element to hash.
+	 * @return the hash of the element.
+	 */
+	int hash(T element);
+
+	/**
+	 * Gets the {@linkplain Equivalence} based on {@linkplain Object#equals(Object)} and {@linkplain Object#hashCode()}.
+	 *
+	 * @param <T> actual type of the compared elements.
+	 * @return the {@linkplain Equivalence} based on {@linkplain Object#equals(Object)} and
+	 * {@linkplain Object#hashCode()}.
+	 */
+	static <T> Equivalence<T> natural() {
+		return new Equivalence<>() {
+
+			@Override
+			public boolean equivalent(T element1, T element2) {
+				return Objects.equals(element1, element2);
+			}
+
+			@Override
+			public int hash(T element) {
+				return element.hashCode();
+			}
+
+		};
+	}
+
+}
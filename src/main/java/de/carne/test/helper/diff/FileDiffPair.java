@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.io.File;
+
+/**
+ * A pair of files to be diffed within a batch diff operation.
+ *
+ * @see Diff#batchLines(java.util.Collection, java.nio.charset.Charset, DiffOptions, java.util.concurrent.Executor)
+ */
+public final class FileDiffPair {
+
+	private final File file1;
+	private final File file2;
+
+	private FileDiffPair(File file1, File file2) {
+		this.file1 = file1;
+		this.file2 = file2;
+	}
+
+	/**
+	 * Creates a new {@linkplain FileDiffPair} instance.
+	 *
+	 * @param file1 the 1st file to diff.
+	 * @param file2 the 2nd file to diff.
+	 * @return the created {@linkplain FileDiffPair} instance.
+	 */
+	public static FileDiffPair of(File file1, File file2) {
+		return new FileDiffPair(file1, file2);
+	}
+
+	/**
+	 * Gets the 1st file to diff.
+	 *
+	 * @return the 1st file to diff.
+	 */
+	public File file1() {
+		return this.file1;
+	}
+
+	/**
+	 * Gets the 2nd file to diff.
+	 *
+	 * @return the 2nd file to diff.
+	 */
+	public File file2() {
+		return this.file2;
+	}
+
+	@Override
+	public String toString() {
+		return this.file1 + " <> " + this.file2;
+	}
+
+}
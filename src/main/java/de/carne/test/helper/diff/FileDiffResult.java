@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The outcome of diffing a single {@linkplain FileDiffPair} within a batch diff operation.
+ * <p>
+ * I/O errors are captured per file pair and re-thrown on result access (see {@linkplain #result()}). Hence a single
+ * failing file pair does not affect the remaining batch.
+ * </p>
+ */
+public final class FileDiffResult {
+
+	private final FileDiffPair pair;
+	private final @Nullable DiffResult<String> result;
+	private final @Nullable IOException failure;
+
+	FileDiffResult(FileDiffPair pair, DiffResult<String> result) {
+		this.pair = pair;
+		this.result = result;
+		this.failure = null;
+	}
+
+	FileDiffResult(FileDiffPair pair, IOException failure) {
+		this.pair = pair;
+		this.result = null;
+		this.failure = failure;
+	}
+
+	/**
+	 * Gets the diffed file pair.
+	 *
+	 * @return the diffed file pair.
+	 */
+	public FileDiffPair pair() {
+		return this.pair;
+	}
+
+	/**
+	 * Checks whether diffing the file pair failed due to an I/O error.
+	 *
+	 * @return {@code true} if diffing the file pair failed.
+	 */
+	public boolean isFailed() {
+		return this.failure != null;
+	}
+
+	/**
+	 * Gets the diff result.
+	 *
+	 * @return the diff result.
+	 * @throws IOException if diffing the file pair failed due to an I/O error.
+	 */
+	public DiffResult<String> result() throws IOException {
+		IOException checkedFailure = this.failure;
+
+		if (checkedFailure != null) {
+			throw checkedFailure;
+		}
+		return Objects.requireNonNull(this.result);
+	}
+
+	@Override
+	public String toString() {
+		return this.pair + ": " + (this.failure != null ? this.failure : this.result);
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+/**
+ * Open addressing hash table mapping {@code int} keys to consecutive entry indices.
+ * <p>
+ * The table itself only keeps the keys. Any data to associate with a key is kept by the caller in arrays indexed by
+ * the key's entry index.
+ * </p>
+ */
+class IdTable {
+
+	private final int[] slots;
+	private final int[] keys;
+	private int size = 0;
+
+	/**
+	 * Constructs a new {@linkplain IdTable} instance.
+	 *
+	 * @param capacity the maximum number of keys to add.
+	 */
+	IdTable(int capacity) {
+		this.slots = new int[Integer.highestOneBit(Math.max(capacity, 1)) << 2];
+		this.keys = new int[capacity];
+	}
+
+	/**
+	 * Gets the entry index of the given key and adds the key if needed.
+	 *
+	 * @param key the key to get the entry index for.
+	 * @return the entry index of the given key.
+	 */
+	public int add(int key) {
+		int mask = this.slots.length - 1;
+		int slot = hash(key) & mask;
+		int entry;
+
+		while ((entry = this.slots[slot]) != 0) {
+			if (this.keys[entry - 1] == key) {
+				return entry - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		entry = this.size;
+		this.slots[slot] = entry + 1;
+		this.keys[entry] = key;
+		this.size++;
+		return entry;
+	}
+
+	/**
+	 * Gets the entry index of the given key.
+	 *
+	 * @param key the key to get the entry index for.
+	 * @return the entry index of the given key or {@code -1} if the key has not been added.
+	 */
+	public int get(int key) {
+		int mask = this.slots.length - 1;
+		int slot = hash(key) & mask;
+		int entry;
+
+		while ((entry = this.slots[slot]) != 0) {
+			if (this.keys[entry - 1] == key) {
+				return entry - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the number of keys added so far.
+	 *
+	 * @return the number of keys added so far.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	private static int hash(int key) {
+		int hash = key * 0x9e3779b9;
+
+		return hash ^ (hash >>> 16);
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Maps values to {@code int} ids, such that equivalent values get the same id.
+ * <p>
+ * This enables the diff core to compare ids instead of checking the values' {@linkplain Equivalence} for every probe.
+ * </p>
+ *
+ * @param <T> actual type of the interned values.
+ */
+class Interner<T> {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private int[] table = new int[INITIAL_CAPACITY];
+	private int[] hashes = new int[INITIAL_CAPACITY >> 1];
+	private @Nullable Object[] values = new @Nullable Object[INITIAL_CAPACITY >> 1];
+	private int size = 0;
+	private Equivalence<? super T> equivalence;
+
+	Interner() {
+		this(Equivalence.natural());
+	}
+
+	Interner(Equivalence<? super T> equivalence) {
+		this.equivalence = equivalence;
+	}
+
+	/**
+	 * Gets the id of the given value.
+	 *
+	 * @param value the value to get the id for.
+	 * @return the id of the given value.
+	 */
+	public int intern(T value) {
+		int hash = hash(value);
+		int mask = this.table.length - 1;
+		int slot = hash & mask;
+		int id;
+
+		while ((id = this.table[slot]) != 0) {
+			if (this.hashes[id - 1] == hash && this.equivalence.equivalent(value(id - 1), value)) {
+				return id - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return add(slot, hash, value);
+	}
+
+	/**
+	 * Discards all interned values.
+	 */
+	public void reset() {
+		Arrays.fill(this.table, 0);
+		Arrays.fill(this.values, 0, this.size, null);
+		this.size = 0;
+	}
+
+	/**
+	 * Discards all interned values and switches to the given {@linkplain Equivalence}.
+	 *
+	 * @param newEquivalence the {@linkplain Equivalence} to use from now on.
+	 */
+	public void reset(Equivalence<? super T> newEquivalence) {
+		reset();
+		this.equivalence = newEquivalence;
+	}
+
+	/**
+	 * Gets the number of values this instance can take before growing its tables.
+	 *
+	 * @return the number of values this instance can take before growing its tables.
+	 */
+	public int capacity() {
+		return this.hashes.length;
+	}
+
+	private int add(int slot, int hash, T value) {
+		int id = this.size;
+
+		this.table[slot] = id + 1;
+		this.hashes[id] = hash;
+		this.values[id] = value;
+		this.size++;
+		if (this.size >= this.hashes.length) {
+			grow();
+		}
+		return id;
+	}
+
+	private void grow() {
+		int capacity = this.table.length << 1;
+		int mask = capacity - 1;
+
+		this.table = new int[capacity];
+		for (int id = 0; id < this.size; id++) {
+			int slot = this.hashes[id] & mask;
+
+			while (this.table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			this.table[slot] = id + 1;
+		}
+		this.hashes = Arrays.copyOf(this.hashes, capacity >> 1);
+		this.values = Arrays.copyOf(this.values, capacity >> 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	private T value(int id) {
+		return (T) Objects.requireNonNull(this.values[id]);
+	}
+
+	private int hash(T value) {
+		int hash = this.equivalence.hash(value);
+
+		return hash ^ (hash >>> 16);
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes lines into the keys used for comparing them.
+ * <p>
+ * The normalization is applied once per line while it is fed into the {@linkplain Differ}. The original line is kept
+ * for reporting.
+ * </p>
+ */
+class LineNormalizer implements UnaryOperator<String> {
+
+	private static final String MASK = "\u0000";
+
+	private final boolean whitespaceFolding;
+	private final boolean caseFolding;
+	private final List<Pattern> masks;
+
+	LineNormalizer(boolean whitespaceFolding, boolean caseFolding, List<Pattern> masks) {
+		this.whitespaceFolding = whitespaceFolding;
+		this.caseFolding = caseFolding;
+		this.masks = masks;
+	}
+
+	@Override
+	public String apply(String line) {
+		String key = line;
+
+		for (Pattern mask : this.masks) {
+			key = mask.matcher(key).replaceAll(MASK);
+		}
+		if (this.whitespaceFolding) {
+			key = foldWhitespace(key);
+		}
+		if (this.caseFolding) {
+			key = key.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+		}
+		return key;
+	}
+
+	private static String foldWhitespace(String line) {
+		int length = line.length();
+		StringBuilder buffer = new StringBuilder(length);
+		boolean whitespace = false;
+
+		for (int index = 0; index < length; index++) {
+			char c = line.charAt(index);
+
+			if (Character.isWhitespace(c)) {
+				whitespace = true;
+			} else {
+				if (whitespace && buffer.length() > 0) {
+					buffer.append(' ');
+				}
+				buffer.append(c);
+				whitespace = false;
+			}
+		}
+		return buffer.toString();
+	}
+
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * Splits a character input into lines without creating a {@linkplain String} per line.
+ * <p>
+ * The input is read into a reusable character buffer. Lines are identified by their start and end offset within this
+ * buffer and stay accessible until they are discarded (see {@linkplain #discard(int)}). Line terminators are handled
+ * the same way as by {@linkplain java.io.BufferedReader#readLine()}.
+ * </p>
+ */
+abstract class LineSource {
+
+	private static final int INITIAL_BUFFER_SIZE = 0x2000;
+	private static final int BYTE_BUFFER_SIZE = 0x2000;
+	private static final char CR = '\r';
+	private static final char LF = '\n';
+
+	private char[] chars = new char[INITIAL_BUFFER_SIZE];
+	private int length = 0;
+	private int scan = 0;
+	private int lineStart = 0;
+	private int lineEnd = 0;
+	private boolean eof = false;
+
+	/**
+	 * Creates a {@linkplain LineSource} reading from a {@linkplain Reader}.
+	 *
+	 * @param reader the {@linkplain Reader} to read from.
+	 * @return the created {@linkplain LineSource}.
+	 */
+	public static LineSource read(Reader reader) {
+		return new LineSource() {
+
+			@Override
+			protected int read(char[] buffer, int offset, int count) throws IOException {
+				return reader.read(buffer, offset, count);
+			}
+
+		};
+	}
+
+	/**
+	 * Creates a {@linkplain LineSource} decoding the bytes read from a {@linkplain ReadableByteChannel}.
+	 * <p>
+	 * Malformed input and unmappable characters are replaced (like {@linkplain java.io.InputStreamReader} does).
+	 * </p>
+	 *
+	 * @param channel the {@linkplain ReadableByteChannel} to read from.
+	 * @param cs the {@linkplain Charset} to use for decoding.
+	 * @return the created {@linkplain LineSource}.
+	 */
+	public static LineSource decode(ReadableByteChannel channel, Charset cs) {
+		CharsetDecoder decoder = cs.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		return new LineSource() {
+
+			private final ByteBuffer bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE).flip();
+			private boolean inputEof = false;
+			private boolean flushed = false;
+
+			@Override
+			protected int read(char[] buffer, int offset, int count) throws IOException {
+				CharBuffer out = CharBuffer.wrap(buffer, offset, count);
+
+				while (out.position() == offset && !this.flushed) {
+					CoderResult result = decoder.decode(this.bytes, out, this.inputEof);
+
+					if (result.isError()) {
+						result.throwException();
+					}
+					if (result.isOverflow()) {
+						// Not enough room for a surrogate pair; let the caller grow the buffer
+						break;
+					}
+					if (out.position() == offset) {
+						if (this.inputEof) {
+							decoder.flush(out);
+							this.flushed = true;
+						} else {
+							this.bytes.compact();
+							this.inputEof = channel.read(this.bytes) < 0;
+							this.bytes.flip();
+						}
+					}
+				}
+				return (out.position() > offset || !this.flushed ? out.position() - offset : -1);
+			}
+
+		};
+	}
+
+	/**
+	 * Reads the next characters of the underlying input.
+	 *
+	 * @param buffer the buffer to read into.
+	 * @param offset the buffer offset to read to.
+	 * @param count the maximum number of characters to read.
+	 * @return the number of characters read or {@code -1} if the end of input has been reached.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	protected abstract int read(char[] buffer, int offset, int count) throws IOException;
+
+	/**
+	 * Advances to the next line.
+	 *
+	 * @return {@code true} if a line is available (see {@linkplain #lineStart()} and {@linkplain #lineEnd()}).
+	 * {@code false} if the end of input has been reached.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public boolean nextLine() throws IOException {
+		int end = this.scan;
+		boolean terminated = false;
+
+		while (!terminated && (end < this.length || fill())) {
+			char c = this.chars[end];
+
+			if (c == LF || c == CR) {
+				terminated = true;
+			} else {
+				end++;
+			}
+		}
+
+		boolean line = terminated || end > this.scan;
+
+		if (line) {
+			int next = end;
+
+			if (terminated) {
+				next++;
+				if (this.chars[end] == CR && (next < this.length || fill()) && this.chars[next] == LF) {
+					next++;
+				}
+			}
+			this.lineStart = this.scan;
+			this.lineEnd = end;
+			this.scan = next;
+		}
+		return line;
+	}
+
+	/**
+	 * Checks whether there are remaining lines to read.
+	 *
+	 * @return {@code true} if there are remaining lines to read.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public boolean hasRemaining() throws IOException {
+		return this.scan < this.length || fill();
+	}
+
+	private boolean fill() throws IOException {
+		int read = 0;
+
+		while (read == 0 && !this.eof) {
+			if (this.length == this.chars.length) {
+				this.chars = Arrays.copyOf(this.chars, this.chars.length << 1);
+			}
+			read = read(this.chars, this.length, this.chars.length - this.length);
+			if (read > 0) {
+				this.length += read;
+			} else if (read < 0) {
+				this.eof = true;
+			} else if (this.length + 1 >= this.chars.length) {
+				// The input needs more room to make progress (e.g. a surrogate pair)
+				this.chars = Arrays.copyOf(this.chars, this.chars.length << 1);
+			}
+		}
+		return read > 0;
+	}
+
+	/**
+	 * Gets the start offset of the current line.
+	 *
+	 * @return the start offset of the current line.
+	 */
+	public int lineStart() {
+		return this.lineStart;
+	}
+
+	/**
+	 * Gets the end offset (exclusive and without line terminator) of the current line.
+	 *
+	 * @return the end offset of the current line.
+	 */
+	public int lineEnd() {
+		return this.lineEnd;
+	}
+
+	/**
+	 * Gets the offset of the next line to read.
+	 *
+	 * @return the offset of the next line to read.
+	 */
+	public int nextLineStart() {
+		return this.scan;
+	}
+
+	/**
+	 * Discards all buffered characters before the given offset.
+	 * <p>
+	 * All buffered characters are moved down accordingly. Hence every line offset retrieved so far has to be
+	 * decremented by the given offset.
+	 * </p>
+	 *
+	 * @param offset the offset to discard the buffered characters up to.
+	 */
+	public void discard(int offset) {
+		System.arraycopy(this.chars, offset, this.chars, 0, this.length - offset);
+		this.length -= offset;
+		this.scan -= offset;
+		this.lineStart -= offset;
+		this.lineEnd -= offset;
+	}
+
+	/**
+	 * Calculates the hash code of a buffered line.
+	 *
+	 * @param start the line's start offset.
+	 * @param end the line's end offset.
+	 * @return the hash code of the line.
+	 */
+	public int hash(int start, int end) {
+		int hash = 1;
+
+		for (int index = start; index < end; index++) {
+			hash = 31 * hash + this.chars[index];
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Checks whether two buffered lines are equal.
+	 *
+	 * @param start the 1st line's start offset.
+	 * @param end the 1st line's end offset.
+	 * @param source the {@linkplain LineSource} containing the 2nd line.
+	 * @param sourceStart the 2nd line's start offset.
+	 * @param sourceEnd the 2nd line's end offset.
+	 * @return {@code true} if both lines are equal.
+	 */
+	public boolean equals(int start, int end, LineSource source, int sourceStart, int sourceEnd) {
+		return Arrays.equals(this.chars, start, end, source.chars, sourceStart, sourceEnd);
+	}
+
+	/**
+	 * Creates the {@linkplain String} representation of a buffered line.
+	 *
+	 * @param start the line's start offset.
+	 * @param end the line's end offset.
+	 * @return the line's {@linkplain String} representation.
+	 */
+	public String toString(int start, int end) {
+		return new String(this.chars, start, end - start);
+	}
+
+}
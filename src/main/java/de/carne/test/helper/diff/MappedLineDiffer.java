@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@linkplain Differ} implementation diffing two memory mapped files line by line.
+ * <p>
+ * Lines are split and compared on the raw bytes. Only lines actually reported as a {@linkplain DiffEntry} are decoded
+ * into a {@linkplain String}.
+ * </p>
+ */
+class MappedLineDiffer extends Differ<String> {
+
+	private static final byte CR = '\r';
+	private static final byte LF = '\n';
+
+	private final Charset cs;
+	private final ByteBuffer leftBuffer;
+	private final ByteBuffer rightBuffer;
+	private final ByteBuffer leftView1;
+	private final ByteBuffer leftView2;
+	private final ByteBuffer rightView1;
+	private final ByteBuffer rightView2;
+	private int leftOffset = 0;
+	private int rightOffset = 0;
+	private int[] leftIds;
+	private int[] rightIds;
+	private int[] leftStarts;
+	private int[] rightStarts;
+	private int[] leftEnds;
+	private int[] rightEnds;
+	private final RefInterner interner;
+
+	MappedLineDiffer(DiffOptions options, DiffBuffers buffers, Charset cs, ByteBuffer left, ByteBuffer right) {
+		super(options.windowSize(), options, buffers);
+		this.cs = cs;
+		this.leftBuffer = left;
+		this.rightBuffer = right;
+		this.leftView1 = left.duplicate();
+		this.leftView2 = left.duplicate();
+		this.rightView1 = right.duplicate();
+		this.rightView2 = right.duplicate();
+
+		int range = options.windowSize();
+
+		this.leftIds = buffers.ints(DiffBuffers.LEFT_IDS, range);
+		this.rightIds = buffers.ints(DiffBuffers.RIGHT_IDS, range);
+		this.leftStarts = buffers.ints(DiffBuffers.LEFT_STARTS, range);
+		this.rightStarts = buffers.ints(DiffBuffers.RIGHT_STARTS, range);
+		this.leftEnds = buffers.ints(DiffBuffers.LEFT_ENDS, range);
+		this.rightEnds = buffers.ints(DiffBuffers.RIGHT_ENDS, range);
+		this.interner = new RefInterner(buffers, range << 1, this::refEquals);
+	}
+
+	/**
+	 * Checks whether the given {@linkplain Charset} can be handled by this differ.
+	 * <p>
+	 * Only {@linkplain Charset}s which encode line terminators as single byte and never use these bytes inside multi
+	 * byte sequences are supported.
+	 * </p>
+	 *
+	 * @param cs the {@linkplain Charset} to check.
+	 * @return {@code true} if the {@linkplain Charset} is supported.
+	 */
+	public static boolean isSupported(Charset cs) {
+		return StandardCharsets.UTF_8.equals(cs) || StandardCharsets.US_ASCII.equals(cs)
+				|| StandardCharsets.ISO_8859_1.equals(cs);
+	}
+
+	/**
+	 * Feeds the next lines of both files into the diff window.
+	 *
+	 * @return {@code true} if there are remaining lines which did not fit into the diff window.
+	 */
+	public boolean feed() {
+		int range = range();
+
+		while (leftLength() < range && this.leftOffset < this.leftBuffer.limit()) {
+			int l = nextLeft();
+			int start = this.leftOffset;
+			int end = lineEnd(this.leftBuffer, start);
+
+			this.leftStarts[l] = start;
+			this.leftEnds[l] = end;
+			this.leftIds[l] = this.interner.intern(l << 1, hash(this.leftBuffer, start, end));
+			this.leftOffset = nextLineStart(this.leftBuffer, end);
+		}
+		while (rightLength() < range && this.rightOffset < this.rightBuffer.limit()) {
+			int r = nextRight();
+			int start = this.rightOffset;
+			int end = lineEnd(this.rightBuffer, start);
+
+			this.rightStarts[r] = start;
+			this.rightEnds[r] = end;
+			this.rightIds[r] = this.interner.intern((r << 1) | 1, hash(this.rightBuffer, start, end));
+			this.rightOffset = nextLineStart(this.rightBuffer, end);
+		}
+		return this.leftOffset < this.leftBuffer.limit() || this.rightOffset < this.rightBuffer.limit();
+	}
+
+	private static int lineEnd(ByteBuffer buffer, int start) {
+		int limit = buffer.limit();
+		int end = start;
+
+		while (end < limit) {
+			byte b = buffer.get(end);
+
+			if (b == LF || b == CR) {
+				break;
+			}
+			end++;
+		}
+		return end;
+	}
+
+	private static int nextLineStart(ByteBuffer buffer, int end) {
+		int limit = buffer.limit();
+		int next = end;
+
+		if (next < limit && buffer.get(next) == CR) {
+			next++;
+			if (next < limit && buffer.get(next) == LF) {
+				next++;
+			}
+		} else if (next < limit) {
+			next++;
+		}
+		return next;
+	}
+
+	private static int hash(ByteBuffer buffer, int start, int end) {
+		int hash = 1;
+
+		for (int index = start; index < end; index++) {
+			hash = 31 * hash + buffer.get(index);
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private boolean refEquals(int ref1, int ref2) {
+		return refView(ref1, this.leftView1, this.rightView1).equals(refView(ref2, this.leftView2, this.rightView2));
+	}
+
+	private ByteBuffer refView(int ref, ByteBuffer leftView, ByteBuffer rightView) {
+		int index = ref >>> 1;
+		ByteBuffer view;
+
+		if ((ref & 1) == 0) {
+			view = leftView.limit(this.leftEnds[index]).position(this.leftStarts[index]);
+		} else {
+			view = rightView.limit(this.rightEnds[index]).position(this.rightStarts[index]);
+		}
+		return view;
+	}
+
+	@Override
+	protected String leftValue(int l) {
+		return decode(this.leftBuffer, this.leftStarts[l], this.leftEnds[l]);
+	}
+
+	@Override
+	protected String rightValue(int r) {
+		return decode(this.rightBuffer, this.rightStarts[r], this.rightEnds[r]);
+	}
+
+	private String decode(ByteBuffer buffer, int start, int end) {
+		ByteBuffer line = buffer.duplicate();
+
+		line.limit(end).position(start);
+		return this.cs.decode(line).toString();
+	}
+
+	@Override
+	protected int leftId(int l) {
+		return this.leftIds[l];
+	}
+
+	@Override
+	protected int rightId(int r) {
+		return this.rightIds[r];
+	}
+
+	@Override
+	protected boolean lrEquals(int l, int r) {
+		return this.leftIds[l] == this.rightIds[r];
+	}
+
+	@Override
+	protected void shift(int leftStart, int leftCount, int rightStart, int rightCount) {
+		System.arraycopy(this.leftStarts, leftStart, this.leftStarts, 0, leftCount);
+		System.arraycopy(this.leftEnds, leftStart, this.leftEnds, 0, leftCount);
+		System.arraycopy(this.rightStarts, rightStart, this.rightStarts, 0, rightCount);
+		System.arraycopy(this.rightEnds, rightStart, this.rightEnds, 0, rightCount);
+		// Re-intern the remaining lines to keep the id table restricted to the current window
+		this.interner.reset();
+		for (int l = 0; l < leftCount; l++) {
+			this.leftIds[l] = this.interner.intern(l << 1, hash(this.leftBuffer, this.leftStarts[l], this.leftEnds[l]));
+		}
+		for (int r = 0; r < rightCount; r++) {
+			this.rightIds[r] = this.interner.intern((r << 1) | 1,
+					hash(this.rightBuffer, this.rightStarts[r], this.rightEnds[r]));
+		}
+	}
+
+	@Override
+	protected void resize(int newRange) {
+		DiffBuffers buffers = buffers();
+
+		this.leftIds = buffers.ints(DiffBuffers.LEFT_IDS, newRange);
+		this.rightIds = buffers.ints(DiffBuffers.RIGHT_IDS, newRange);
+		this.leftStarts = buffers.ints(DiffBuffers.LEFT_STARTS, newRange);
+		this.rightStarts = buffers.ints(DiffBuffers.RIGHT_STARTS, newRange);
+		this.leftEnds = buffers.ints(DiffBuffers.LEFT_ENDS, newRange);
+		this.rightEnds = buffers.ints(DiffBuffers.RIGHT_ENDS, newRange);
+		this.interner.resize(newRange << 1);
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * {@linkplain Differ} implementation for arbitrary values.
+ * <p>
+ * Values are mapped to their comparison keys and interned into {@code int} ids when they are fed, so the diff core
+ * only compares ids. The original values are only accessed when they are reported as a {@linkplain DiffEntry}.
+ * </p>
+ *
+ * @param <T> actual type of the diffed values.
+ */
+class ObjectDiffer<T> extends Differ<T> {
+
+	private @Nullable T[] left;
+	private @Nullable T[] right;
+	private @Nullable T[] leftKeys;
+	private @Nullable T[] rightKeys;
+	private int[] leftIds;
+	private int[] rightIds;
+	private final Interner<T> interner;
+	private final UnaryOperator<T> keyFunction;
+
+	@SuppressWarnings("unchecked")
+	ObjectDiffer(int range, DiffOptions options, DiffBuffers buffers, Equivalence<? super T> equivalence,
+			UnaryOperator<T> keyFunction) {
+		super(range, options, buffers);
+		this.interner = buffers.interner(equivalence);
+		this.keyFunction = keyFunction;
+		this.left = (@Nullable T[]) buffers.objects(DiffBuffers.LEFT_VALUES, range);
+		this.right = (@Nullable T[]) buffers.objects(DiffBuffers.RIGHT_VALUES, range);
+		this.leftKeys = (@Nullable T[]) buffers.objects(DiffBuffers.LEFT_KEYS, range);
+		this.rightKeys = (@Nullable T[]) buffers.objects(DiffBuffers.RIGHT_KEYS, range);
+		this.leftIds = buffers.ints(DiffBuffers.LEFT_IDS, range);
+		this.rightIds = buffers.ints(DiffBuffers.RIGHT_IDS, range);
+	}
+
+	public boolean feedLeft(T entry) {
+		int l = nextLeft();
+
+		T key = this.keyFunction.apply(entry);
+
+		this.left[l] = entry;
+		this.leftKeys[l] = key;
+		this.leftIds[l] = this.interner.intern(key);
+		return leftLength() < range();
+	}
+
+	public boolean feedLeft(T[] entries) {
+		for (T entry : entries) {
+			if (!feedLeft(entry)) {
+				break;
+			}
+		}
+		return leftLength() < range();
+	}
+
+	public boolean feedLeft(Iterable<T> entries) {
+		for (T entry : entries) {
+			if (!feedLeft(entry)) {
+				break;
+			}
+		}
+		return leftLength() < range();
+	}
+
+	public boolean feedRight(T entry) {
+		int r = nextRight();
+
+		T key = this.keyFunction.apply(entry);
+
+		this.right[r] = entry;
+		this.rightKeys[r] = key;
+		this.rightIds[r] = this.interner.intern(key);
+		return rightLength() < range();
+	}
+
+	public boolean feedRight(T[] entries) {
+		for (T entry : entries) {
+			if (!feedRight(entry)) {
+				break;
+			}
+		}
+		return rightLength() < range();
+	}
+
+	public boolean feedRight(Iterable<T> entries) {
+		for (T entry : entries) {
+			if (!feedRight(entry)) {
+				break;
+			}
+		}
+		return rightLength() < range();
+	}
+
+	@Override
+	protected T leftValue(int l) {
+		return Objects.requireNonNull(this.left[l]);
+	}
+
+	@Override
+	protected T rightValue(int r) {
+		return Objects.requireNonNull(this.right[r]);
+	}
+
+	@Override
+	protected int leftId(int l) {
+		return this.leftIds[l];
+	}
+
+	@Override
+	protected int rightId(int r) {
+		return this.rightIds[r];
+	}
+
+	@Override
+	protected boolean lrEquals(int l, int r) {
+		return this.leftIds[l] == this.rightIds[r];
+	}
+
+	@Override
+	protected void shift(int leftStart, int leftCount, int rightStart, int rightCount) {
+		System.arraycopy(this.left, leftStart, this.left, 0, leftCount);
+		System.arraycopy(this.right, rightStart, this.right, 0, rightCount);
+		System.arraycopy(this.leftKeys, leftStart, this.leftKeys, 0, leftCount);
+		System.arraycopy(this.rightKeys, rightStart, this.rightKeys, 0, rightCount);
+		Arrays.fill(this.left, leftCount, range(), null);
+		Arrays.fill(this.right, rightCount, range(), null);
+		Arrays.fill(this.leftKeys, leftCount, range(), null);
+		Arrays.fill(this.rightKeys, rightCount, range(), null);
+		// Re-intern the remaining keys to keep the id table restricted to the current window
+		this.interner.reset();
+		for (int l = 0; l < leftCount; l++) {
+			this.leftIds[l] = this.interner.intern(Objects.requireNonNull(this.leftKeys[l]));
+		}
+		for (int r = 0; r < rightCount; r++) {
+			this.rightIds[r] = this.interner.intern(Objects.requireNonNull(this.rightKeys[r]));
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void resize(int newRange) {
+		DiffBuffers buffers = buffers();
+
+		this.left = (@Nullable T[]) buffers.objects(DiffBuffers.LEFT_VALUES, newRange);
+		this.right = (@Nullable T[]) buffers.objects(DiffBuffers.RIGHT_VALUES, newRange);
+		this.leftKeys = (@Nullable T[]) buffers.objects(DiffBuffers.LEFT_KEYS, newRange);
+		this.rightKeys = (@Nullable T[]) buffers.objects(DiffBuffers.RIGHT_KEYS, newRange);
+		this.leftIds = buffers.ints(DiffBuffers.LEFT_IDS, newRange);
+		this.rightIds = buffers.ints(DiffBuffers.RIGHT_IDS, newRange);
+	}
+
+}
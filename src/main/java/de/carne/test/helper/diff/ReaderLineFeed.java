@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.carne.util.Exceptions;
+
+/**
+ * Feeds the lines of two inputs window by window into a line {@linkplain Differ}.
+ * <p>
+ * Unless line normalization is requested, the inputs are split via {@linkplain LineSource}s and diffed by a
+ * {@linkplain DecodedLineDiffer}. Hence only lines reported as a {@linkplain DiffEntry} are materialized into a
+ * {@linkplain String}.
+ * </p>
+ */
+class ReaderLineFeed {
+
+	private final Differ<String> differ;
+	private final WindowFeeder feeder;
+	private boolean remaining = true;
+	private boolean finished = false;
+
+	@FunctionalInterface
+	private interface WindowFeeder {
+
+		boolean feed() throws IOException;
+
+	}
+
+	ReaderLineFeed(BufferedReader reader1, BufferedReader reader2, DiffOptions options, DiffBuffers buffers)
+			throws IOException {
+		if (options.isNormalizing()) {
+			ObjectDiffer<String> objectDiffer = Differ.lineDiffer(options, buffers);
+			LineReader lineReader = new LineReader(reader1, reader2, objectDiffer);
+
+			this.differ = objectDiffer;
+			this.feeder = lineReader::feed;
+		} else {
+			DecodedLineDiffer decodedDiffer = new DecodedLineDiffer(options, buffers, LineSource.read(reader1),
+					LineSource.read(reader2));
+
+			this.differ = decodedDiffer;
+			this.feeder = decodedDiffer::feed;
+		}
+	}
+
+	ReaderLineFeed(LineSource source1, LineSource source2, DiffOptions options, DiffBuffers buffers) {
+		DecodedLineDiffer decodedDiffer = new DecodedLineDiffer(options, buffers, source1, source2);
+
+		this.differ = decodedDiffer;
+		this.feeder = decodedDiffer::feed;
+	}
+
+	/**
+	 * Gets the underlying {@linkplain Differ}.
+	 *
+	 * @return the underlying {@linkplain Differ}.
+	 */
+	public Differ<String> differ() {
+		return this.differ;
+	}
+
+	/**
+	 * Feeds and diffs the next window.
+	 *
+	 * @return {@code true} if a window has been diffed. {@code false} if the diff is already finished.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public boolean step() throws IOException {
+		if (this.finished) {
+			return false;
+		}
+		if (this.differ.isRestrained() && this.remaining) {
+			this.remaining = this.feeder.feed();
+			this.differ.run(false);
+		} else {
+			this.differ.run(true);
+			this.finished = true;
+		}
+		return true;
+	}
+
+	/**
+	 * Feeds and diffs all remaining windows.
+	 *
+	 * @param listener the optional {@linkplain DiffListener} to pass the diff entries to as soon as they are final.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void run(@Nullable DiffListener<String> listener) throws IOException {
+		while (step()) {
+			if (listener != null) {
+				this.differ.flush(listener);
+			}
+		}
+	}
+
+	/**
+	 * Feeds and diffs all remaining windows collecting the diff statistics only.
+	 * <p>
+	 * This function must be called before any other feed function.
+	 * </p>
+	 *
+	 * @return the diff statistics.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public DiffStats stats() throws IOException {
+		DiffStatsCollector collector = new DiffStatsCollector();
+
+		this.differ.discardValues();
+		while (step()) {
+			this.differ.flush(collector);
+		}
+		return collector.toStats(this.differ);
+	}
+
+	/**
+	 * Creates a {@linkplain Spliterator} providing the diff entries lazily.
+	 *
+	 * @return the created {@linkplain Spliterator}.
+	 */
+	public Spliterator<DiffEntry<String>> spliterator() {
+		return new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+
+			private final Deque<DiffEntry<String>> entries = new ArrayDeque<>();
+
+			@Override
+			public boolean tryAdvance(@Nullable Consumer<? super DiffEntry<String>> action) {
+				try {
+					while (this.entries.isEmpty() && step()) {
+						ReaderLineFeed.this.differ.flush(this.entries::add);
+					}
+				} catch (IOException e) {
+					throw Exceptions.toRuntime(e);
+				}
+
+				DiffEntry<String> entry = this.entries.poll();
+
+				if (entry != null && action != null) {
+					action.accept(entry);
+				}
+				return entry != null;
+			}
+
+		};
+	}
+
+	private static class LineReader {
+
+		private final BufferedReader reader1;
+		private final BufferedReader reader2;
+		private final ObjectDiffer<String> differ;
+		private @Nullable String reader1Line;
+		private @Nullable String reader2Line;
+
+		LineReader(BufferedReader reader1, BufferedReader reader2, ObjectDiffer<String> differ) throws IOException {
+			this.reader1 = reader1;
+			this.reader2 = reader2;
+			this.differ = differ;
+			this.reader1Line = reader1.readLine();
+			this.reader2Line = reader2.readLine();
+		}
+
+		boolean feed() throws IOException {
+			while (this.reader1Line != null) {
+				String feedLine = this.reader1Line;
+
+				this.reader1Line = this.reader1.readLine();
+				if (!this.differ.feedLeft(feedLine)) {
+					break;
+				}
+			}
+			while (this.reader2Line != null) {
+				String feedLine = this.reader2Line;
+
+				this.reader2Line = this.reader2.readLine();
+				if (!this.differ.feedRight(feedLine)) {
+					break;
+				}
+			}
+			return this.reader1Line != null || this.reader2Line != null;
+		}
+
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.util.Arrays;
+
+/**
+ * Maps references to values to {@code int} ids, such that equal values get the same id.
+ * <p>
+ * In contrast to {@linkplain Interner} the values themselves are not kept. Instead the caller identifies every value
+ * by an {@code int} reference (e.g. a line index combined with the input side) and provides the value's hash as well as
+ * an equality check for two references. This enables differs to intern values living in their input buffers (lines or
+ * tokens given by their offsets) without materializing them. The interner's tables are taken from the
+ * {@linkplain DiffBuffers} given on construction.
+ * </p>
+ */
+class RefInterner {
+
+	/**
+	 * Equality check for two value references.
+	 */
+	@FunctionalInterface
+	interface RefEquality {
+
+		/**
+		 * Checks whether the values referenced by the given references are equal.
+		 *
+		 * @param ref1 the 1st value reference.
+		 * @param ref2 the 2nd value reference.
+		 * @return {@code true} if the referenced values are equal.
+		 */
+		boolean refEquals(int ref1, int ref2);
+
+	}
+
+	private final DiffBuffers buffers;
+	private final RefEquality equality;
+	private int[] table;
+	private int tableMask;
+	private int[] idHashes;
+	private int[] idRefs;
+	private int size = 0;
+
+	/**
+	 * Constructs a new {@linkplain RefInterner} instance.
+	 *
+	 * @param buffers the {@linkplain DiffBuffers} to take the tables from.
+	 * @param capacity the maximum number of ids to hand out (see {@linkplain #resize(int)}).
+	 * @param equality the {@linkplain RefEquality} to use.
+	 */
+	RefInterner(DiffBuffers buffers, int capacity, RefEquality equality) {
+		this.buffers = buffers;
+		this.equality = equality;
+		this.table = allocateTable(capacity);
+		this.tableMask = tableSize(capacity) - 1;
+		this.idHashes = buffers.ints(DiffBuffers.INTERN_HASHES, capacity);
+		this.idRefs = buffers.ints(DiffBuffers.INTERN_REFS, capacity);
+	}
+
+	/**
+	 * Gets the id of the referenced value.
+	 * <p>
+	 * If the value has not been seen before, a new id is handed out and the given reference is recorded as the
+	 * reference to compare further values with. The caller has to make sure the reference stays valid until the
+	 * interner is reset.
+	 * </p>
+	 *
+	 * @param ref the value reference.
+	 * @param hash the hash of the referenced value.
+	 * @return the id of the referenced value.
+	 */
+	public int intern(int ref, int hash) {
+		int mask = this.tableMask;
+		int slot = hash & mask;
+		int id;
+
+		while ((id = this.table[slot]) != 0) {
+			if (this.idHashes[id - 1] == hash && this.equality.refEquals(this.idRefs[id - 1], ref)) {
+				return id - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		id = this.size;
+		this.table[slot] = id + 1;
+		this.idHashes[id] = hash;
+		this.idRefs[id] = ref;
+		this.size++;
+		return id;
+	}
+
+	/**
+	 * Discards all ids handed out so far.
+	 */
+	public void reset() {
+		Arrays.fill(this.table, 0, this.tableMask + 1, 0);
+		this.size = 0;
+	}
+
+	/**
+	 * Changes the maximum number of ids to hand out while keeping the ids handed out so far.
+	 *
+	 * @param newCapacity the new maximum number of ids to hand out.
+	 */
+	public void resize(int newCapacity) {
+		this.table = allocateTable(newCapacity);
+		this.tableMask = tableSize(newCapacity) - 1;
+		this.idHashes = this.buffers.ints(DiffBuffers.INTERN_HASHES, newCapacity);
+		this.idRefs = this.buffers.ints(DiffBuffers.INTERN_REFS, newCapacity);
+
+		int mask = this.tableMask;
+
+		for (int id = 0; id < this.size; id++) {
+			int slot = this.idHashes[id] & mask;
+
+			while (this.table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			this.table[slot] = id + 1;
+		}
+	}
+
+	private int[] allocateTable(int capacity) {
+		int tableSize = tableSize(capacity);
+		// Buffers may contain data of previous runs
+		int[] allocatedTable = this.buffers.ints(DiffBuffers.INTERN_TABLE, tableSize);
+
+		Arrays.fill(allocatedTable, 0, tableSize, 0);
+		return allocatedTable;
+	}
+
+	private static int tableSize(int capacity) {
+		// Keep the load factor at or below 1/2
+		return Integer.highestOneBit(Math.max(capacity, 1)) << 2;
+	}
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import de.carne.util.Check;
+
+/**
+ * {@linkplain Differ} implementation diffing two strings token by token.
+ * <p>
+ * Tokens are interned by their hash and compared directly within the input strings. Only tokens actually reported as
+ * a {@linkplain DiffEntry} are turned into a {@linkplain String}.
+ * </p>
+ */
+class TokenDiffer extends Differ<String> {
+
+	private final String leftInput;
+	private final String rightInput;
+	private final int[] leftTokenEnds;
+	private final int leftTokenCount;
+	private final int[] rightTokenEnds;
+	private final int rightTokenCount;
+	private int[] leftIds;
+	private int[] rightIds;
+	private int[] leftStarts;
+	private int[] rightStarts;
+	private int[] leftEnds;
+	private int[] rightEnds;
+	private final RefInterner interner;
+
+	private TokenDiffer(DiffOptions options, DiffBuffers buffers, String leftInput, int leftTokenCount,
+			String rightInput, int rightTokenCount) {
+		super(Math.max(Math.max(leftTokenCount, rightTokenCount), 1), options, buffers);
+		this.leftInput = leftInput;
+		this.rightInput = rightInput;
+		this.leftTokenEnds = buffers.ints(DiffBuffers.LEFT_TOKENS, leftTokenCount);
+		this.leftTokenCount = leftTokenCount;
+		this.rightTokenEnds = buffers.ints(DiffBuffers.RIGHT_TOKENS, rightTokenCount);
+		this.rightTokenCount = rightTokenCount;
+
+		int range = range();
+
+		this.leftIds = buffers.ints(DiffBuffers.LEFT_IDS, range);
+		this.rightIds = buffers.ints(DiffBuffers.RIGHT_IDS, range);
+		this.leftStarts = buffers.ints(DiffBuffers.LEFT_STARTS, range);
+		this.rightStarts = buffers.ints(DiffBuffers.RIGHT_STARTS, range);
+		this.leftEnds = buffers.ints(DiffBuffers.LEFT_ENDS, range);
+		this.rightEnds = buffers.ints(DiffBuffers.RIGHT_ENDS, range);
+		// Tokens are referenced by their index within the (immutable) token arrays combined with the input side
+		this.interner = new RefInterner(buffers, leftTokenCount + rightTokenCount, this::refEquals);
+	}
+
+	/**
+	 * Creates a {@linkplain TokenDiffer} for the given inputs.
+	 *
+	 * @param options the {@linkplain DiffOptions} to use.
+	 * @param buffers the {@linkplain DiffBuffers} to use.
+	 * @param left the 1st string to diff.
+	 * @param right the 2nd string to diff.
+	 * @param tokenizer the {@linkplain Tokenizer} to use.
+	 * @return the created {@linkplain TokenDiffer}.
+	 */
+	public static TokenDiffer create(DiffOptions options, DiffBuffers buffers, String left, String right,
+			Tokenizer tokenizer) {
+		int leftTokenCount = tokenize(buffers, DiffBuffers.LEFT_TOKENS, left, tokenizer);
+		int rightTokenCount = tokenize(buffers, DiffBuffers.RIGHT_TOKENS, right, tokenizer);
+
+		return new TokenDiffer(options, buffers, left, leftTokenCount, right, rightTokenCount);
+	}
+
+	private static int tokenize(DiffBuffers buffers, int slot, String input, Tokenizer tokenizer) {
+		int length = input.length();
+		int[] tokenEnds = buffers.ints(slot, 16);
+		int tokenCount = 0;
+		int start = 0;
+
+		while (start < length) {
+			int end = tokenizer.tokenEnd(input, start);
+
+			Check.isTrue(start < end && end <= length);
+
+			if (tokenCount == tokenEnds.length) {
+				tokenEnds = buffers.ints(slot, tokenCount << 1);
+			}
+			tokenEnds[tokenCount] = end;
+			tokenCount++;
+			start = end;
+		}
+		return tokenCount;
+	}
+
+	/**
+	 * Feeds all tokens of both inputs into the diff window.
+	 */
+	public void feed() {
+		int leftStart = 0;
+
+		for (int token = 0; token < this.leftTokenCount; token++) {
+			int l = nextLeft();
+			int leftEnd = this.leftTokenEnds[token];
+
+			this.leftStarts[l] = leftStart;
+			this.leftEnds[l] = leftEnd;
+			this.leftIds[l] = this.interner.intern(token << 1, hash(this.leftInput, leftStart, leftEnd));
+			leftStart = leftEnd;
+		}
+
+		int rightStart = 0;
+
+		for (int token = 0; token < this.rightTokenCount; token++) {
+			int r = nextRight();
+			int rightEnd = this.rightTokenEnds[token];
+
+			this.rightStarts[r] = rightStart;
+			this.rightEnds[r] = rightEnd;
+			this.rightIds[r] = this.interner.intern((token << 1) | 1, hash(this.rightInput, rightStart, rightEnd));
+			rightStart = rightEnd;
+		}
+	}
+
+	private boolean refEquals(int ref1, int ref2) {
+		String input1 = refInput(ref1);
+		int start1 = refStart(ref1);
+		int length1 = refEnd(ref1) - start1;
+		int start2 = refStart(ref2);
+
+		return length1 == refEnd(ref2) - start2 && input1.regionMatches(start1, refInput(ref2), start2, length1);
+	}
+
+	private String refInput(int ref) {
+		return ((ref & 1) == 0 ? this.leftInput : this.rightInput);
+	}
+
+	private int refStart(int ref) {
+		int index = ref >>> 1;
+
+		return (index > 0 ? refTokenEnds(ref)[index - 1] : 0);
+	}
+
+	private int refEnd(int ref) {
+		return refTokenEnds(ref)[ref >>> 1];
+	}
+
+	private int[] refTokenEnds(int ref) {
+		return ((ref & 1) == 0 ? this.leftTokenEnds : this.rightTokenEnds);
+	}
+
+	private static int hash(String input, int start, int end) {
+		int hash = 1;
+
+		for (int index = start; index < end; index++) {
+			hash = 31 * hash + input.charAt(index);
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	@Override
+	protected String leftValue(int l) {
+		return this.leftInput.substring(this.leftStarts[l], this.leftEnds[l]);
+	}
+
+	@Override
+	protected String rightValue(int r) {
+		return this.rightInput.substring(this.rightStarts[r], this.rightEnds[r]);
+	}
+
+	@Override
+	protected int leftId(int l) {
+		return this.leftIds[l];
+	}
+
+	@Override
+	protected int rightId(int r) {
+		return this.rightIds[r];
+	}
+
+	@Override
+	protected boolean lrEquals(int l, int r) {
+		return this.leftIds[l] == this.rightIds[r];
+	}
+
+	@Override
+	protected void shift(int leftStart, int leftCount, int rightStart, int rightCount) {
+		System.arraycopy(this.leftIds, leftStart, this.leftIds, 0, leftCount);
+		System.arraycopy(this.leftStarts, leftStart, this.leftStarts, 0, leftCount);
+		System.arraycopy(this.leftEnds, leftStart, this.leftEnds, 0, leftCount);
+		System.arraycopy(this.rightIds, rightStart, this.rightIds, 0, rightCount);
+		System.arraycopy(this.rightStarts, rightStart, this.rightStarts, 0, rightCount);
+		System.arraycopy(this.rightEnds, rightStart, this.rightEnds, 0, rightCount);
+	}
+
+	@Override
+	protected void resize(int newRange) {
+		DiffBuffers buffers = buffers();
+
+		this.leftIds = buffers.ints(DiffBuffers.LEFT_IDS, newRange);
+		this.rightIds = buffers.ints(DiffBuffers.RIGHT_IDS, newRange);
+		this.leftStarts = buffers.ints(DiffBuffers.LEFT_STARTS, newRange);
+		this.rightStarts = buffers.ints(DiffBuffers.RIGHT_STARTS, newRange);
+		this.leftEnds = buffers.ints(DiffBuffers.LEFT_ENDS, newRange);
+		this.rightEnds = buffers.ints(DiffBuffers.RIGHT_ENDS, newRange);
+	}
+
+}
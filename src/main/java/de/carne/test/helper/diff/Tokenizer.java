@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+/**
+ * Splits an input into the tokens to diff.
+ * <p>
+ * A tokenizer splits the whole input into consecutive tokens. Hence every character of the input belongs to exactly
+ * one token.
+ * </p>
+ *
+ * @see Diff#tokens(String, String, Tokenizer)
+ */
+@FunctionalInterface
+public interface Tokenizer {
+
+	/**
+	 * Determines the end of the token starting at the given position.
+	 *
+	 * @param input the input to tokenize.
+	 * @param start the start position of the token.
+	 * @return the end position (exclusive) of the token. Must be greater than {@code start} and not greater than the
+	 * input length.
+	 */
+	int tokenEnd(CharSequence input, int start);
+
+	/**
+	 * Gets a {@linkplain Tokenizer} splitting the input into words.
+	 * <p>
+	 * Every run of letters, digits and underscores as well as every run of whitespace is a token. Any other character
+	 * is a token of its own.
+	 * </p>
+	 *
+	 * @return a {@linkplain Tokenizer} splitting the input into words.
+	 */
+	static Tokenizer words() {
+		return (input, start) -> {
+			int length = input.length();
+			char first = input.charAt(start);
+			int end = start + 1;
+
+			if (isWordChar(first)) {
+				while (end < length && isWordChar(input.charAt(end))) {
+					end++;
+				}
+			} else if (Character.isWhitespace(first)) {
+				while (end < length && Character.isWhitespace(input.charAt(end))) {
+					end++;
+				}
+			}
+			return end;
+		};
+	}
+
+	/**
+	 * Gets a {@linkplain Tokenizer} splitting the input at whitespace boundaries.
+	 * <p>
+	 * Every run of non-whitespace characters as well as every run of whitespace is a token.
+	 * </p>
+	 *
+	 * @return a {@linkplain Tokenizer} splitting the input at whitespace boundaries.
+	 */
+	static Tokenizer whitespace() {
+		return (input, start) -> {
+			int length = input.length();
+			boolean whitespace = Character.isWhitespace(input.charAt(start));
+			int end = start + 1;
+
+			while (end < length && Character.isWhitespace(input.charAt(end)) == whitespace) {
+				end++;
+			}
+			return end;
+		};
+	}
+
+	private static boolean isWordChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_';
+	}
+
+}
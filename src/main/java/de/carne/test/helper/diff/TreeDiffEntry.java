@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.nio.file.Path;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A single file diff within a directory tree diff.
+ */
+public final class TreeDiffEntry {
+
+	/**
+	 * The type of file diff.
+	 */
+	public enum Type {
+
+		/**
+		 * File exists only in the 1st tree.
+		 */
+		REMOVED,
+
+		/**
+		 * File exists only in the 2nd tree.
+		 */
+		ADDED,
+
+		/**
+		 * File exists in both trees but its content differs.
+		 */
+		CHANGED
+
+	}
+
+	private final Path path;
+	private final Type type;
+	private final @Nullable DiffResult<String> lines;
+	private final @Nullable DiffResult<ByteRange> bytes;
+
+	TreeDiffEntry(Path path, Type type, @Nullable DiffResult<String> lines, @Nullable DiffResult<ByteRange> bytes) {
+		this.path = path;
+		this.type = type;
+		this.lines = lines;
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Gets this entry's path (relative to the diffed trees' roots).
+	 *
+	 * @return this entry's path.
+	 */
+	public Path path() {
+		return this.path;
+	}
+
+	/**
+	 * Gets this entry's type.
+	 *
+	 * @return this entry's type.
+	 */
+	public Type type() {
+		return this.type;
+	}
+
+	/**
+	 * Checks whether this entry's file has been diffed byte by byte.
+	 *
+	 * @return {@code true} if this entry's file has been diffed byte by byte.
+	 */
+	public boolean isBinary() {
+		return this.bytes != null;
+	}
+
+	/**
+	 * Gets the line diff result of a changed text file.
+	 *
+	 * @return the line diff result or {@code null} if this entry does not represent a changed text file.
+	 */
+	public @Nullable DiffResult<String> lines() {
+		return this.lines;
+	}
+
+	/**
+	 * Gets the byte diff result of a changed binary file.
+	 *
+	 * @return the byte diff result or {@code null} if this entry does not represent a changed binary file.
+	 */
+	public @Nullable DiffResult<ByteRange> bytes() {
+		return this.bytes;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder();
+
+		switch (this.type) {
+		case REMOVED:
+			buffer.append('-');
+			break;
+		case ADDED:
+			buffer.append('+');
+			break;
+		default:
+			buffer.append('~');
+		}
+		buffer.append(this.path);
+		return buffer.toString();
+	}
+
+}
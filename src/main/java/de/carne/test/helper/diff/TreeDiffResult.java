@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A directory tree diff result.
+ * <p>
+ * The result contains one {@linkplain TreeDiffEntry} per removed, added or changed file. Unchanged files are not
+ * reported. The entries are ordered by their path.
+ * </p>
+ */
+public final class TreeDiffResult implements Iterable<TreeDiffEntry> {
+
+	private final List<TreeDiffEntry> entries;
+
+	TreeDiffResult(List<TreeDiffEntry> entries) {
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Checks whether both trees contain the same files with the same content.
+	 *
+	 * @return {@code true} if both trees contain the same files with the same content.
+	 */
+	public boolean isMatch() {
+		return this.entries.isEmpty();
+	}
+
+	@Override
+	public Iterator<TreeDiffEntry> iterator() {
+		return this.entries.iterator();
+	}
+
+	/**
+	 * Gets the number entries in this result instance.
+	 *
+	 * @return the number entries in this result instance.
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Gets the entry at the given position in this result instance.
+	 *
+	 * @param index the position of the entry to get.
+	 * @return the entry at the given position in this result instance.
+	 */
+	public TreeDiffEntry entryAt(int index) {
+		return this.entries.get(index);
+	}
+
+	/**
+	 * Gets the entry for the given file.
+	 *
+	 * @param path the path (relative to the diffed trees' roots) of the file to get the entry for.
+	 * @return the entry for the given file or {@code null} if the file is unchanged or does not exist in either tree.
+	 */
+	public @Nullable TreeDiffEntry entry(Path path) {
+		int low = 0;
+		int high = this.entries.size();
+		TreeDiffEntry entry = null;
+
+		while (entry == null && low < high) {
+			int mid = (low + high) >>> 1;
+			TreeDiffEntry midEntry = this.entries.get(mid);
+			int comparison = midEntry.path().compareTo(path);
+
+			if (comparison < 0) {
+				low = mid + 1;
+			} else if (comparison > 0) {
+				high = mid;
+			} else {
+				entry = midEntry;
+			}
+		}
+		return entry;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder();
+
+		for (TreeDiffEntry entry : this.entries) {
+			buffer.append(entry).append(System.lineSeparator());
+		}
+		return buffer.toString();
+	}
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Directory tree differ.
+ * <p>
+ * Both trees are walked concurrently. Afterwards every file existing in both trees is checked in a separate task: The
+ * files are probed for binary content and compared by size and content; only changed files are diffed (line by line
+ * for text files, byte by byte for binary files). A file is considered binary if it contains a NUL byte within its
+ * first {@value #BINARY_PROBE_SIZE} bytes.
+ * </p>
+ */
+class TreeDiffer {
+
+	private static final int BINARY_PROBE_SIZE = 8000;
+
+	private final Path root1;
+	private final Path root2;
+	private final Charset cs;
+	private final DiffOptions options;
+	private final Executor executor;
+
+	TreeDiffer(Path root1, Path root2, Charset cs, DiffOptions options, Executor executor) {
+		this.root1 = root1;
+		this.root2 = root2;
+		this.cs = cs;
+		this.options = options;
+		this.executor = executor;
+	}
+
+	public TreeDiffResult run() throws IOException {
+		CompletableFuture<SortedSet<Path>> walk1 = CompletableFuture.supplyAsync(() -> walk(this.root1), this.executor);
+		CompletableFuture<SortedSet<Path>> walk2 = CompletableFuture.supplyAsync(() -> walk(this.root2), this.executor);
+		List<SortedSet<Path>> walks = awaitAll(List.of(walk1, walk2));
+		Iterator<Path> files1 = walks.get(0).iterator();
+		Iterator<Path> files2 = walks.get(1).iterator();
+		List<CompletableFuture<Optional<TreeDiffEntry>>> pending = new ArrayList<>();
+		@Nullable Path file1 = next(files1);
+		@Nullable Path file2 = next(files2);
+
+		while (file1 != null || file2 != null) {
+			int comparison = (file1 == null ? 1 : file2 == null ? -1 : file1.compareTo(file2));
+
+			if (comparison < 0) {
+				pending.add(CompletableFuture
+						.completedFuture(Optional.of(new TreeDiffEntry(file1, TreeDiffEntry.Type.REMOVED, null, null))));
+				file1 = next(files1);
+			} else if (comparison > 0) {
+				pending.add(CompletableFuture
+						.completedFuture(Optional.of(new TreeDiffEntry(file2, TreeDiffEntry.Type.ADDED, null, null))));
+				file2 = next(files2);
+			} else {
+				Path file = file1;
+
+				pending.add(CompletableFuture.supplyAsync(() -> diff(file), this.executor));
+				file1 = next(files1);
+				file2 = next(files2);
+			}
+		}
+
+		List<TreeDiffEntry> entries = new ArrayList<>();
+
+		for (Optional<TreeDiffEntry> entry : awaitAll(pending)) {
+			entry.ifPresent(entries::add);
+		}
+		return new TreeDiffResult(entries);
+	}
+
+	private static @Nullable Path next(Iterator<Path> files) {
+		return (files.hasNext() ? files.next() : null);
+	}
+
+	private static <T> List<T> awaitAll(List<CompletableFuture<T>> futures) throws IOException {
+		List<T> results = new ArrayList<>(futures.size());
+		boolean awaited = false;
+
+		try {
+			for (CompletableFuture<T> future : futures) {
+				results.add(await(future));
+			}
+			awaited = true;
+		} finally {
+			if (!awaited) {
+				// Keep the remaining tasks from being started (running tasks are not interrupted)
+				for (CompletableFuture<T> future : futures) {
+					future.cancel(false);
+				}
+			}
+		}
+		return results;
+	}
+
+	private static <T> T await(CompletableFuture<T> future) throws IOException {
+		T result;
+
+		try {
+			result = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(e.getMessage());
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+		return result;
+	}
+
+	private static SortedSet<Path> walk(Path root) {
+		SortedSet<Path> files;
+
+		try (Stream<Path> paths = Files.walk(root)) {
+			files = paths.filter(Files::isRegularFile).map(root::relativize)
+					.collect(Collectors.toCollection(TreeSet::new));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return files;
+	}
+
+	private Optional<TreeDiffEntry> diff(Path file) {
+		Path file1 = this.root1.resolve(file);
+		Path file2 = this.root2.resolve(file);
+		TreeDiffEntry entry = null;
+
+		try {
+			// Probe first, so binary files are compared by the byte diff only
+			if (isBinary(file1) || isBinary(file2)) {
+				// The byte diff detects identical content by itself
+				DiffResult<ByteRange> bytesResult = Diff.bytes(file1, file2);
+
+				if (bytesResult.size() > 0) {
+					entry = new TreeDiffEntry(file, TreeDiffEntry.Type.CHANGED, null, bytesResult);
+				}
+			} else if (!Diff.isSameContent(file1.toFile(), file2.toFile())) {
+				// The line diff may be empty for changed content (e.g. due to different line terminators), hence the
+				// explicit comparison
+				entry = new TreeDiffEntry(file, TreeDiffEntry.Type.CHANGED,
+						Diff.lines(file1.toFile(), file2.toFile(), this.cs, this.options), null);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return Optional.ofNullable(entry);
+	}
+
+	private static boolean isBinary(Path file) throws IOException {
+		boolean binary = false;
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer probe = ByteBuffer.allocate(BINARY_PROBE_SIZE);
+
+			Diff.readFully(channel, probe);
+			probe.flip();
+			while (!binary && probe.hasRemaining()) {
+				binary = probe.get() == 0;
+			}
+		}
+		return binary;
+	}
+
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.carne.util.Check;
+
+/**
+ * Renders line diff entries in unified diff format ({@code @@ -a,b +c,d @@}).
+ * <p>
+ * The output is written hunk by hunk while the entries are passed in. Context lines are read lazily from the 1st diff
+ * input, hence only the lines of the current hunk are kept in memory. Entries must be passed in the order they are
+ * reported by the diff (either via {@linkplain #write(DiffEntry)} or by using this writer as a
+ * {@linkplain DiffListener}).
+ * </p>
+ * <p>
+ * As the lines are passed in without their line terminators, a missing line terminator at the end of an input is not
+ * marked (no {@code \ No newline at end of file} line is written). Patch tools applying the output will therefore
+ * terminate the last line in such a case.
+ * </p>
+ */
+public final class UnifiedDiffWriter implements DiffListener<String> {
+
+	private static final String NEWLINE = "\n";
+
+	private final Appendable out;
+	private final BufferedReader source;
+	private final int contextLines;
+	private final Deque<String> leadingContext = new ArrayDeque<>();
+	private final List<String> hunkLines = new ArrayList<>();
+	private final List<String> deletedLines = new ArrayList<>();
+	private final List<String> insertedLines = new ArrayList<>();
+	private int sourcePosition = 0;
+	private int delta = 0;
+	private boolean hunkOpen = false;
+	private int hunkLeftStart = 0;
+	private int hunkRightStart = 0;
+	private int hunkLeftCount = 0;
+	private int hunkRightCount = 0;
+
+	/**
+	 * Constructs a new {@linkplain UnifiedDiffWriter} instance.
+	 *
+	 * @param out the {@linkplain Appendable} to write to.
+	 * @param source the 1st diff input to read the context lines from.
+	 * @param contextLines the number of context lines to write around every change.
+	 */
+	public UnifiedDiffWriter(Appendable out, BufferedReader source, int contextLines) {
+		Check.isTrue(contextLines >= 0);
+
+		this.out = out;
+		this.source = source;
+		this.contextLines = contextLines;
+	}
+
+	/**
+	 * Writes the unified diff file header.
+	 *
+	 * @param name1 the name of the 1st diff input.
+	 * @param name2 the name of the 2nd diff input.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void writeHeader(String name1, String name2) throws IOException {
+		this.out.append("--- ").append(name1).append(NEWLINE);
+		this.out.append("+++ ").append(name2).append(NEWLINE);
+	}
+
+	/**
+	 * Writes all given entries and finishes the output.
+	 *
+	 * @param entries the entries to write.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void writeAll(Iterable<DiffEntry<String>> entries) throws IOException {
+		for (DiffEntry<String> entry : entries) {
+			write(entry);
+		}
+		finish();
+	}
+
+	/**
+	 * Writes a single entry.
+	 * <p>
+	 * A hunk is written as soon as it is complete, meaning as soon as the next entry is too far away to be part of
+	 * the same hunk.
+	 * </p>
+	 *
+	 * @param entry the entry to write.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void write(DiffEntry<String> entry) throws IOException {
+		int position = entry.position();
+
+		skipTo(position);
+		if (!this.hunkOpen) {
+			openHunk();
+		}
+		if (entry.type() == DiffEntry.Type.DELETE) {
+			if (readLine() == null) {
+				throw new IOException("Unexpected end of input at line " + (position + 1));
+			}
+			this.deletedLines.add(entry.value());
+			this.hunkLeftCount++;
+			this.delta--;
+		} else {
+			this.insertedLines.add(entry.value());
+			this.hunkRightCount++;
+			this.delta++;
+		}
+	}
+
+	/**
+	 * Finishes the output by writing the last pending hunk (if any).
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void finish() throws IOException {
+		if (this.hunkOpen) {
+			for (int contextIndex = 0; contextIndex < this.contextLines; contextIndex++) {
+				String line = readLine();
+
+				if (line == null) {
+					break;
+				}
+				addContextLine(line);
+			}
+			closeHunk();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * I/O errors are re-thrown as {@linkplain UncheckedIOException}s (see
+	 * {@linkplain Diff#lines(BufferedReader, BufferedReader, DiffOptions, DiffListener)}).
+	 * </p>
+	 */
+	@Override
+	public void onEntry(DiffEntry<String> entry) {
+		try {
+			write(entry);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void skipTo(int position) throws IOException {
+		int unchanged = position - this.sourcePosition;
+
+		if (this.hunkOpen && unchanged > (this.contextLines << 1)) {
+			for (int contextIndex = 0; contextIndex < this.contextLines; contextIndex++) {
+				addContextLine(requireLine());
+			}
+			closeHunk();
+		}
+		while (this.sourcePosition < position) {
+			String line = requireLine();
+
+			if (this.hunkOpen) {
+				addContextLine(line);
+			} else if (this.contextLines > 0) {
+				if (this.leadingContext.size() == this.contextLines) {
+					this.leadingContext.removeFirst();
+				}
+				this.leadingContext.addLast(line);
+			}
+		}
+	}
+
+	private void openHunk() {
+		this.hunkOpen = true;
+		this.hunkLeftStart = this.sourcePosition - this.leadingContext.size();
+		this.hunkRightStart = this.hunkLeftStart + this.delta;
+		this.hunkLeftCount = 0;
+		this.hunkRightCount = 0;
+		while (!this.leadingContext.isEmpty()) {
+			addContextLine(this.leadingContext.removeFirst());
+		}
+	}
+
+	private void addContextLine(String line) {
+		flushChanges();
+		this.hunkLines.add(" " + line);
+		this.hunkLeftCount++;
+		this.hunkRightCount++;
+	}
+
+	private void flushChanges() {
+		for (String deletedLine : this.deletedLines) {
+			this.hunkLines.add("-" + deletedLine);
+		}
+		for (String insertedLine : this.insertedLines) {
+			this.hunkLines.add("+" + insertedLine);
+		}
+		this.deletedLines.clear();
+		this.insertedLines.clear();
+	}
+
+	private void closeHunk() throws IOException {
+		flushChanges();
+		this.out.append("@@ -");
+		appendRange(this.hunkLeftStart, this.hunkLeftCount);
+		this.out.append(" +");
+		appendRange(this.hunkRightStart, this.hunkRightCount);
+		this.out.append(" @@").append(NEWLINE);
+		for (String hunkLine : this.hunkLines) {
+			this.out.append(hunkLine).append(NEWLINE);
+		}
+		this.hunkLines.clear();
+		this.hunkOpen = false;
+	}
+
+	private void appendRange(int start, int count) throws IOException {
+		// Like GNU diff: 1-based start line, the line before the hunk for empty ranges, count omitted if 1
+		this.out.append(Integer.toString(count > 0 ? start + 1 : start));
+		if (count != 1) {
+			this.out.append(',').append(Integer.toString(count));
+		}
+	}
+
+	private String requireLine() throws IOException {
+		String line = readLine();
+
+		if (line == null) {
+			throw new IOException("Unexpected end of input at line " + (this.sourcePosition + 1));
+		}
+		return line;
+	}
+
+	@Nullable
+	private String readLine() throws IOException {
+		String line = this.source.readLine();
+
+		if (line != null) {
+			this.sourcePosition++;
+		}
+		return line;
+	}
+
+}
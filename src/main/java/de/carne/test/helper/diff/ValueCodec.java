@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2018-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.helper.diff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of diff values as used by {@linkplain DiffResultCodec}.
+ *
+ * @param <T> actual type of the encoded values.
+ */
+interface ValueCodec<T> {
+
+	/**
+	 * Gets the id of the encoded value type (stored in the encoding's header).
+	 *
+	 * @return the id of the encoded value type.
+	 */
+	int typeId();
+
+	/**
+	 * Encodes a value.
+	 *
+	 * @param writer the {@linkplain DiffResultWriter} to encode to.
+	 * @param value the value to encode.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	void write(DiffResultWriter<T> writer, T value) throws IOException;
+
+	/**
+	 * Decodes a value.
+	 *
+	 * @param buffer the {@linkplain ByteBuffer} to decode from.
+	 * @return the decoded value.
+	 * @throws IOException if the encoding is invalid.
+	 */
+	T read(ByteBuffer buffer) throws IOException;
+
+}
@@ -16,10 +16,27 @@
  */
 package de.carne.test.test.helper.diff;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -27,8 +44,24 @@ import org.junit.jupiter.api.extension.ExtendWith;
 
 import de.carne.test.annotation.io.TempDir;
 import de.carne.test.extension.io.TempPathExtension;
+import de.carne.test.helper.diff.ByteRange;
 import de.carne.test.helper.diff.Diff;
+import de.carne.test.helper.diff.DiffAlgorithm;
+import de.carne.test.helper.diff.DiffCache;
+import de.carne.test.helper.diff.DiffEngine;
+import de.carne.test.helper.diff.DiffEntry;
+import de.carne.test.helper.diff.DiffOptions;
 import de.carne.test.helper.diff.DiffResult;
+import de.carne.test.helper.diff.DiffResultCodec;
+import de.carne.test.helper.diff.DiffResultWriter;
+import de.carne.test.helper.diff.DiffStats;
+import de.carne.test.helper.diff.Equivalence;
+import de.carne.test.helper.diff.FileDiffPair;
+import de.carne.test.helper.diff.FileDiffResult;
+import de.carne.test.helper.diff.Tokenizer;
+import de.carne.test.helper.diff.TreeDiffEntry;
+import de.carne.test.helper.diff.TreeDiffResult;
+import de.carne.test.helper.diff.UnifiedDiffWriter;
 import de.carne.test.helper.io.RemoteTestFile;
 import de.carne.test.helper.io.TestFile;
 import de.carne.util.logging.Log;
@@ -85,6 +118,256 @@ class DiffTest {
 		Assertions.assertEquals("@25:+C", diffResult5.entryAt(7).toString());
 		Assertions.assertEquals("@25:+D", diffResult5.entryAt(8).toString());
 		Assertions.assertEquals("@25:-z", diffResult5.entryAt(9).toString());
+		Assertions.assertEquals(diffResult5, diffCharacters(CHARACTERS_1A, CHARACTERS_1B));
+		Assertions.assertEquals(diffResult5.hashCode(), diffCharacters(CHARACTERS_1A, CHARACTERS_1B).hashCode());
+		// The hash code must not depend on identity hashes (e.g. of enum constants)
+		Assertions.assertEquals(valueHashCode(diffResult5), diffResult5.hashCode());
+		Assertions.assertNotEquals(diffResult5, diffResult2);
+	}
+
+	private static int valueHashCode(DiffResult<?> diffResult) {
+		// Combine only values with a well-defined hash code: position, type ordinal and value hash
+		int hash = 1;
+
+		for (DiffEntry<?> entry : diffResult) {
+			hash = 31 * hash + entry.position();
+			hash = 31 * hash + entry.type().ordinal();
+			hash = 31 * hash + entry.value().hashCode();
+		}
+		return hash;
+	}
+
+	@Test
+	void testLargeCharacterDiff() {
+		StringBuilder buffer = new StringBuilder();
+
+		while (buffer.length() < 100000) {
+			buffer.append(CHARACTERS_1A);
+		}
+
+		String string1 = buffer.toString();
+		String string2 = buffer.insert(50000, '?').deleteCharAt(0).toString();
+		DiffResult<Character> diffResult = Diff.characters(string1, string2);
+
+		Assertions.assertEquals(2, diffResult.size());
+		Assertions.assertEquals("@0:-a", diffResult.entryAt(0).toString());
+		Assertions.assertEquals("@50000:+?", diffResult.entryAt(1).toString());
+	}
+
+	@Test
+	void testParallelCharacterDiff() {
+		Random random = new Random(0);
+		StringBuilder buffer1 = new StringBuilder();
+		StringBuilder buffer2 = new StringBuilder();
+
+		while (buffer1.length() < 20000) {
+			char c = (char) ('a' + random.nextInt(4));
+
+			buffer1.append(c);
+			if (random.nextInt(10) != 0) {
+				buffer2.append(c);
+			}
+			if (random.nextInt(20) == 0) {
+				buffer2.append('?');
+			}
+		}
+
+		String string1 = buffer1.toString();
+		String string2 = buffer2.toString();
+		DiffResult<Character> diffResult1 = Diff.characters(string1, string2);
+		DiffResult<Character> diffResult2 = Diff.characters(string1, string2,
+				DiffOptions.defaults().withParallelThreshold(64));
+
+		Assertions.assertEquals(diffResult1.size(), diffResult2.size());
+		Assertions.assertEquals(diffResult1.toString(), diffResult2.toString());
+	}
+
+	@Test
+	void testTokenDiff() {
+		String json1 = "{\"a\":1,\"name\":\"foo\",\"list\":[1,2,3]}";
+		String json2 = "{\"a\":2,\"name\":\"foo bar\",\"list\":[1,3]}";
+
+		Assertions.assertEquals(DiffResult.tokenMatch(), Diff.tokens(json1, json1, Tokenizer.words()));
+
+		DiffResult<String> diffResult = Diff.tokens(json1, json2, Tokenizer.words());
+
+		Assertions.assertEquals(6, diffResult.size());
+		Assertions.assertEquals("@5:+2", diffResult.entryAt(0).toString());
+		Assertions.assertEquals("@5:-1", diffResult.entryAt(1).toString());
+		Assertions.assertEquals("@13:+bar", diffResult.entryAt(3).toString());
+		Assertions.assertEquals("@21:-,", diffResult.entryAt(4).toString());
+		Assertions.assertEquals("@22:-2", diffResult.entryAt(5).toString());
+	}
+
+	@Test
+	void testSequenceDiff() {
+		List<String> sequence1 = Arrays.asList("Alpha", "beta", "Gamma", "delta");
+		List<String> sequence2 = Arrays.asList("alpha", "Beta", "epsilon", "DELTA");
+		Equivalence<String> ignoreCase = new Equivalence<>() {
+
+			@Override
+			public boolean equivalent(String element1, String element2) {
+				return element1.equalsIgnoreCase(element2);
+			}
+
+			@Override
+			public int hash(String element) {
+				return element.toLowerCase(Locale.ROOT).hashCode();
+			}
+
+		};
+
+		Assertions.assertEquals(DiffResult.sequenceMatch(), Diff.sequences(sequence1, sequence1));
+		Assertions.assertEquals(8, Diff.sequences(sequence1, sequence2).size());
+
+		DiffResult<String> diffResult = Diff.sequences(sequence1, sequence2, ignoreCase);
+
+		Assertions.assertEquals(2, diffResult.size());
+		Assertions.assertEquals("@2:+epsilon", diffResult.entryAt(0).toString());
+		Assertions.assertEquals("@2:-Gamma", diffResult.entryAt(1).toString());
+	}
+
+	@Test
+	void testBoundedDiff() {
+		String string1 = "The quick brown fox jumps over the lazy dog";
+		String string2 = "The quick red fox jumped over the lazy cat";
+		DiffResult<Character> diffResult = Diff.characters(string1, string2);
+
+		Assertions.assertFalse(diffResult.isExceeded());
+
+		DiffResult<Character> boundedResult1 = Diff.characters(string1, string2,
+				DiffOptions.defaults().withMaxEdits(diffResult.size()));
+
+		Assertions.assertFalse(boundedResult1.isExceeded());
+		Assertions.assertTrue(boundedResult1.isRestrained());
+		Assertions.assertEquals(diffResult, boundedResult1);
+
+		DiffResult<Character> boundedResult2 = Diff.characters(string1, string2,
+				DiffOptions.defaults().withMaxEdits(diffResult.size() - 1));
+
+		Assertions.assertTrue(boundedResult2.isExceeded());
+		Assertions.assertFalse(boundedResult2.isRestrained());
+		Assertions.assertTrue(Diff.characters(string1, string1 + string1, DiffOptions.defaults().withMaxEdits(10))
+				.isExceeded());
+	}
+
+	@Test
+	void testBoundedWindowedDiff() {
+		StringBuilder buffer1 = new StringBuilder();
+		StringBuilder buffer2 = new StringBuilder();
+
+		for (int line = 0; line < 3 * DiffOptions.DEFAULT_WINDOW_SIZE; line++) {
+			buffer1.append(line).append('\n');
+			buffer2.append(line).append('\n');
+			// Insert a block straddling the boundary of the 1st diff window
+			if (line == DiffOptions.DEFAULT_WINDOW_SIZE - 10) {
+				for (int insertedLine = 0; insertedLine < 50; insertedLine++) {
+					buffer2.append("inserted").append(insertedLine).append('\n');
+				}
+			}
+		}
+
+		String string1 = buffer1.toString();
+		String string2 = buffer2.toString();
+		DiffResult<String> boundedResult1 = Diff.lines(string1, string2, DiffOptions.defaults().withMaxEdits(60));
+
+		Assertions.assertFalse(boundedResult1.isExceeded());
+		Assertions.assertTrue(boundedResult1.isRestrained());
+		Assertions.assertEquals(Diff.lines(string1, string2), boundedResult1);
+
+		DiffResult<String> boundedResult2 = Diff.lines(string1, string2, DiffOptions.defaults().withMaxEdits(49));
+
+		Assertions.assertTrue(boundedResult2.isExceeded());
+		Assertions.assertFalse(boundedResult2.isRestrained());
+	}
+
+	@Test
+	void testApproximateDiff() {
+		List<Integer> sequence1 = new ArrayList<>();
+		List<Integer> sequence2 = new ArrayList<>();
+		Random random = new Random(0);
+
+		for (int element = 0; element < 5000; element++) {
+			sequence1.add(random.nextInt(10));
+			sequence2.add(random.nextInt(10));
+		}
+
+		DiffResult<Integer> diffResult = Diff.sequences(sequence1, sequence2);
+
+		Assertions.assertFalse(diffResult.isApproximate());
+
+		DiffResult<Integer> cancelledResult = Diff.sequences(sequence1, sequence2, Equivalence.natural(),
+				DiffOptions.defaults().withCancellation(() -> true));
+
+		Assertions.assertTrue(cancelledResult.isApproximate());
+		Assertions.assertTrue(cancelledResult.size() >= diffResult.size());
+		Assertions.assertEquals(sequence2, applyDiff(sequence1, cancelledResult));
+
+		DiffResult<Integer> timeoutResult = Diff.sequences(sequence1, sequence2, Equivalence.natural(),
+				DiffOptions.defaults().withTimeout(Duration.ofNanos(1)));
+
+		Assertions.assertEquals(sequence2, applyDiff(sequence1, timeoutResult));
+		Assertions.assertEquals(diffResult, Diff.sequences(sequence1, sequence2, Equivalence.natural(),
+				DiffOptions.defaults().withTimeout(Duration.ofHours(1))));
+	}
+
+	private static <T> List<T> applyDiff(List<T> sequence, DiffResult<T> diffResult) {
+		List<T> applied = new ArrayList<>();
+		int position = 0;
+
+		for (DiffEntry<T> diffEntry : diffResult) {
+			while (position < diffEntry.position()) {
+				applied.add(sequence.get(position));
+				position++;
+			}
+			if (diffEntry.type() == DiffEntry.Type.INSERT) {
+				applied.add(diffEntry.value());
+			} else {
+				position++;
+			}
+		}
+		applied.addAll(sequence.subList(position, sequence.size()));
+		return applied;
+	}
+
+	@Test
+	void testScatteredSequenceDiff() {
+		List<Integer> sequence1 = new ArrayList<>();
+		List<Integer> sequence2 = new ArrayList<>();
+
+		for (int element = 0; element < 20000; element++) {
+			sequence1.add(element);
+			sequence2.add(element % 3 == 0 ? -element - 1 : element);
+		}
+
+		DiffResult<Integer> diffResult = Diff.sequences(sequence1, sequence2);
+
+		Assertions.assertEquals(2 * 6667, diffResult.size());
+		Assertions.assertEquals("@0:+-1", diffResult.entryAt(0).toString());
+		Assertions.assertEquals("@0:-0", diffResult.entryAt(1).toString());
+	}
+
+	@Test
+	void testDiffEngine() throws IOException {
+		DiffEngine engine = new DiffEngine();
+		DiffOptions options = DiffOptions.defaults();
+
+		for (int round = 0; round < 3; round++) {
+			Assertions.assertEquals(Diff.characters(CHARACTERS_1A, CHARACTERS_1B),
+					engine.characters(CHARACTERS_1A, CHARACTERS_1B, options));
+			Assertions.assertEquals(Diff.characters(CHARACTERS_1B, CHARACTERS_1A),
+					engine.characters(CHARACTERS_1B, CHARACTERS_1A, options));
+			Assertions.assertEquals(Diff.lines(CHARACTERS_1A, CHARACTERS_1B),
+					engine.lines(CHARACTERS_1A, CHARACTERS_1B, options));
+			engine.reset();
+		}
+		try (BufferedReader reader1 = new BufferedReader(new StringReader("a\nb\n"));
+				BufferedReader reader2 = new BufferedReader(new StringReader("a\nc\n"))) {
+			Assertions.assertThrows(IllegalStateException.class,
+					() -> engine.lines(reader1, reader2, options, entry -> engine.reset()));
+		}
+		engine.reset();
+		Assertions.assertSame(DiffEngine.current(), DiffEngine.current());
 	}
 
 	private DiffResult<Character> diffCharacters(String string1, String string2) {
@@ -97,6 +380,151 @@ class DiffTest {
 		return result;
 	}
 
+	@Test
+	void testLineDiff() {
+		String prefix = CHARACTERS_1A.repeat(100);
+		StringBuilder buffer1 = new StringBuilder();
+		StringBuilder buffer2 = new StringBuilder();
+
+		for (int lineIndex = 0; lineIndex < 250; lineIndex++) {
+			String line = prefix + (lineIndex % 10) + "\n";
+
+			buffer1.append(line);
+			if (lineIndex != 42) {
+				buffer2.append(line);
+			}
+			if (lineIndex == 142) {
+				buffer2.append(prefix).append('?').append("\n");
+			}
+		}
+
+		DiffResult<String> diffResult = Diff.lines(buffer1.toString(), buffer2.toString());
+
+		Assertions.assertTrue(diffResult.isRestrained());
+		Assertions.assertEquals(2, diffResult.size());
+		Assertions.assertEquals(DiffEntry.Type.DELETE, diffResult.entryAt(0).type());
+		Assertions.assertEquals(42, diffResult.entryAt(0).position());
+		Assertions.assertEquals(DiffEntry.Type.INSERT, diffResult.entryAt(1).type());
+		Assertions.assertEquals(143, diffResult.entryAt(1).position());
+	}
+
+	@Test
+	void testLineDiffListenerAndStream() throws IOException {
+		StringBuilder buffer1 = new StringBuilder();
+		StringBuilder buffer2 = new StringBuilder();
+
+		for (int lineIndex = 0; lineIndex < 1000; lineIndex++) {
+			buffer1.append(lineIndex).append('\n');
+			if (lineIndex % 100 != 0) {
+				buffer2.append(lineIndex).append('\n');
+			}
+			if (lineIndex % 150 == 0) {
+				buffer2.append('?').append(lineIndex).append('\n');
+			}
+		}
+
+		String string1 = buffer1.toString();
+		String string2 = buffer2.toString();
+		DiffOptions options = DiffOptions.streaming(200);
+		List<String> expectedEntries = new ArrayList<>();
+
+		Diff.lines(string1, string2, options).forEach(entry -> expectedEntries.add(entry.toString()));
+
+		List<String> listenerEntries = new ArrayList<>();
+
+		try (BufferedReader reader1 = new BufferedReader(new StringReader(string1));
+				BufferedReader reader2 = new BufferedReader(new StringReader(string2))) {
+			Assertions.assertTrue(
+					Diff.lines(reader1, reader2, options, entry -> listenerEntries.add(entry.toString())));
+		}
+
+		List<String> streamEntries;
+
+		try (BufferedReader reader1 = new BufferedReader(new StringReader(string1));
+				BufferedReader reader2 = new BufferedReader(new StringReader(string2))) {
+			streamEntries = Diff.lineStream(reader1, reader2, options).map(DiffEntry::toString)
+					.collect(Collectors.toList());
+		}
+
+		Assertions.assertEquals(17, expectedEntries.size());
+		Assertions.assertEquals(expectedEntries, listenerEntries);
+		Assertions.assertEquals(expectedEntries, streamEntries);
+	}
+
+	@Test
+	void testUnifiedDiff(@TempDir Path tmpDir) throws IOException {
+		String string1 = "1\n2\n3\n4\n5\n6\n7\n8\n9\n10\n";
+		String string2 = "1\n2a\n3\n4\n5\n6\n7\n8\n9\n10\n11\n";
+		StringBuilder buffer = new StringBuilder();
+
+		try (BufferedReader source = new BufferedReader(new StringReader(string1))) {
+			new UnifiedDiffWriter(buffer, source, 2).writeAll(Diff.lines(string1, string2));
+		}
+
+		Assertions.assertEquals("@@ -1,4 +1,4 @@\n 1\n-2\n+2a\n 3\n 4\n@@ -9,2 +9,3 @@\n 9\n 10\n+11\n",
+				buffer.toString());
+
+		File file1 = Files.writeString(tmpDir.resolve("file1.txt"), string1).toFile();
+		File file2 = Files.writeString(tmpDir.resolve("file2.txt"), string2).toFile();
+		// Fail on hunk output only (the header is written directly, the hunks via the diff listener)
+		Appendable failing = new Appendable() {
+
+			@Override
+			public Appendable append(CharSequence csq) throws IOException {
+				if (csq.toString().startsWith("@@")) {
+					throw new IOException("Write failed");
+				}
+				return this;
+			}
+
+			@Override
+			public Appendable append(CharSequence csq, int start, int end) throws IOException {
+				return append(csq.subSequence(start, end));
+			}
+
+			@Override
+			public Appendable append(char c) throws IOException {
+				return this;
+			}
+
+		};
+
+		Assertions.assertThrows(IOException.class, () -> Diff.unifiedLines(file1, file2, StandardCharsets.UTF_8,
+				DiffOptions.defaults(), 2, failing));
+	}
+
+	@Test
+	void testNormalizedLineDiff() {
+		String string1 = "Started at 10:15:42\n  Hello   World\nid=4711\n";
+		String string2 = "Started at 11:01:07\nhello world  \nid=4712\n";
+
+		Assertions.assertEquals(6, Diff.lines(string1, string2).size());
+
+		DiffOptions options = DiffOptions.defaults().withWhitespaceFolding(true).withCaseFolding(true)
+				.withMask(Pattern.compile("\\d\\d:\\d\\d:\\d\\d"));
+		DiffResult<String> diffResult = Diff.lines(string1, string2, options);
+
+		Assertions.assertEquals(2, diffResult.size());
+		Assertions.assertEquals("@2:+id=4712", diffResult.entryAt(0).toString());
+		Assertions.assertEquals("@2:-id=4711", diffResult.entryAt(1).toString());
+		Assertions.assertEquals(0, Diff.lines(string1, string2, options.withMask(Pattern.compile("\\d+"))).size());
+	}
+
+	@Test
+	void testLineDiffAlgorithms() {
+		String source1 = "int f() {\n\ta();\n}\n\nint g() {\n\tb();\n}\n";
+		String source2 = "int f() {\n\ta();\n}\n\nint h() {\n\tc();\n}\n\nint g() {\n\tb();\n}\n";
+
+		for (DiffAlgorithm algorithm : DiffAlgorithm.values()) {
+			DiffResult<String> diffResult = Diff.lines(source1, source2,
+					DiffOptions.defaults().withAlgorithm(algorithm));
+
+			Assertions.assertEquals(4, diffResult.size());
+			Assertions.assertEquals("@4:+int h() {", diffResult.entryAt(0).toString());
+			Assertions.assertEquals("@4:+", diffResult.entryAt(3).toString());
+		}
+	}
+
 	@Test
 	void testFileDiff1(@TempDir Path tmpDir) throws IOException {
 		TestFile file1a = new RemoteTestFile(tmpDir, FILE_1A);
@@ -138,6 +566,311 @@ class DiffTest {
 
 		Assertions.assertFalse(diffResult6.isRestrained());
 		Assertions.assertEquals(200, diffResult6.size());
+
+		DiffResult<String> diffResult7 = Diff.lines(file1b.getFile(), file1d.getFile(), StandardCharsets.UTF_8,
+				DiffOptions.streaming(1000));
+
+		Assertions.assertTrue(diffResult7.isRestrained());
+		Assertions.assertEquals(202, diffResult7.size());
+
+		DiffResult<String> diffResult8 = Diff.lines(file1b.getFile(), file1d.getFile(), StandardCharsets.UTF_8,
+				DiffOptions.streaming(50));
+
+		Assertions.assertTrue(diffResult8.isRestrained());
+		Assertions.assertEquals(202, diffResult8.size());
+	}
+
+	@Test
+	void testFileDiff2(@TempDir Path tmpDir) throws IOException {
+		Path file1 = Files.writeString(tmpDir.resolve("file1.txt"), "line1\nline2\r\nline\u00e43\rline4");
+		Path file2 = Files.writeString(tmpDir.resolve("file2.txt"), "line1\r\nline2\nline\u00e43\nline4\n");
+		Path file3 = Files.writeString(tmpDir.resolve("file3.txt"), "line1\nline2\nline\u00f63\nline4\n");
+
+		DiffResult<String> diffResult1 = diffLines(file1.toFile(), file2.toFile());
+
+		Assertions.assertEquals(DiffResult.lineMatch(), diffResult1);
+
+		DiffResult<String> diffResult2 = diffLines(file1.toFile(), file3.toFile());
+
+		Assertions.assertEquals(2, diffResult2.size());
+		Assertions.assertEquals("@2:+line\u00f63", diffResult2.entryAt(0).toString());
+		Assertions.assertEquals("@2:-line\u00e43", diffResult2.entryAt(1).toString());
+
+		DiffResult<String> diffResult3 = Diff.lines(file1.toFile(), file1.toFile(), StandardCharsets.UTF_16LE);
+
+		Assertions.assertEquals(DiffResult.lineMatch(), diffResult3);
+		Assertions.assertTrue(diffResult3.isRestrained());
+	}
+
+	@Test
+	void testDecodedFileDiff(@TempDir Path tmpDir) throws IOException {
+		Path file1 = Files.writeString(tmpDir.resolve("file1.txt"), "line1\nline2\r\nline\u00e43\rline4",
+				StandardCharsets.UTF_16BE);
+		Path file2 = Files.writeString(tmpDir.resolve("file2.txt"), "line1\r\nline2\nline\u00f63\nline4\n",
+				StandardCharsets.UTF_16BE);
+
+		DiffResult<String> diffResult1 = Diff.lines(file1.toFile(), file2.toFile(), StandardCharsets.UTF_16BE);
+
+		Assertions.assertEquals(2, diffResult1.size());
+		Assertions.assertEquals("@2:+line\u00f63", diffResult1.entryAt(0).toString());
+		Assertions.assertEquals("@2:-line\u00e43", diffResult1.entryAt(1).toString());
+
+		StringBuilder buffer = new StringBuilder();
+
+		for (int lineIndex = 0; lineIndex < 10000; lineIndex++) {
+			buffer.append("line").append(lineIndex).append(lineIndex % 2 == 0 ? "\n" : "\r\n");
+		}
+
+		String string1 = buffer.toString();
+		String string2 = string1.replace("line5000\n", "line5000a\n");
+		DiffResult<String> diffResult2 = Diff.lines(string1, string2);
+
+		Assertions.assertEquals(2, diffResult2.size());
+		Assertions.assertEquals("@5000:+line5000a", diffResult2.entryAt(0).toString());
+		Assertions.assertEquals("@5000:-line5000", diffResult2.entryAt(1).toString());
+	}
+
+	@Test
+	void testLineStats(@TempDir Path tmpDir) throws IOException {
+		Path file1 = Files.writeString(tmpDir.resolve("file1.txt"), "line1\nline2\nline3\nline4\nline5\n");
+		Path file2 = Files.writeString(tmpDir.resolve("file2.txt"), "line1\nline2a\nline3\nline4\nline6\nline7\n");
+
+		DiffStats stats = Diff.lineStats(file1.toFile(), file2.toFile());
+
+		Assertions.assertEquals(3, stats.inserted());
+		Assertions.assertEquals(2, stats.deleted());
+		Assertions.assertEquals(3, stats.unchanged());
+		Assertions.assertEquals(2, stats.hunks());
+		Assertions.assertEquals(5, stats.distance());
+		Assertions.assertTrue(stats.isRestrained());
+		Assertions.assertFalse(stats.isMatch());
+		Assertions.assertTrue(Diff.lineStats(file1.toFile(), file1.toFile()).isMatch());
+
+		try (BufferedReader reader1 = Files.newBufferedReader(file1);
+				BufferedReader reader2 = Files.newBufferedReader(file2)) {
+			Assertions.assertEquals(stats, Diff.lineStats(reader1, reader2, DiffOptions.defaults()));
+		}
+	}
+
+	@Test
+	void testDiffCache(@TempDir Path tmpDir) throws IOException {
+		Path file1 = Files.writeString(tmpDir.resolve("file1.txt"), "line1\nline2\nline3\nline4\nline5\n");
+		Path file2 = Files.writeString(tmpDir.resolve("file2.txt"), "line1\nline2a\nline3\nline4\nline6\nline7\n");
+		Path cacheDir = tmpDir.resolve("cache");
+		DiffCache cache1 = DiffCache.persistent(DiffCache.DEFAULT_MAX_ENTRIES, cacheDir);
+		DiffResult<String> diffResult = cache1.lines(file1.toFile(), file2.toFile());
+
+		Assertions.assertEquals(Diff.lines(file1.toFile(), file2.toFile()), diffResult);
+		Assertions.assertSame(diffResult, cache1.lines(file1.toFile(), file2.toFile()));
+		Assertions.assertNotSame(diffResult, cache1.lines(file1.toFile(), file2.toFile(), StandardCharsets.UTF_8,
+				DiffOptions.defaults().withCaseFolding(true)));
+
+		DiffCache cache2 = DiffCache.persistent(DiffCache.DEFAULT_MAX_ENTRIES, cacheDir);
+
+		Assertions.assertEquals(diffResult, cache2.lines(file1.toFile(), file2.toFile()));
+
+		DiffResult<String> surrogateResult = cache1.lines("a\n\uD800\n", "a\n\uD801\n", DiffOptions.defaults());
+
+		Assertions.assertEquals(Diff.lines("a\n\uD800\n", "a\n\uD801\n"), surrogateResult);
+		Assertions.assertEquals(surrogateResult, cache2.lines("a\n\uD800\n", "a\n\uD801\n", DiffOptions.defaults()));
+
+		DiffCache cache3 = DiffCache.memory(1);
+		DiffResult<String> diffResult1 = cache3.lines("a\nb\n", "a\nc\n", DiffOptions.defaults());
+
+		Assertions.assertSame(diffResult1, cache3.lines("a\nb\n", "a\nc\n", DiffOptions.defaults()));
+		cache3.lines("a\nb\n", "b\nc\n", DiffOptions.defaults());
+		Assertions.assertNotSame(diffResult1, cache3.lines("a\nb\n", "a\nc\n", DiffOptions.defaults()));
+
+		DiffCache cache4 = DiffCache.memory(DiffCache.DEFAULT_MAX_ENTRIES);
+
+		Assertions.assertEquals(Diff.lines("a\n\uD800\n", "a\n\uD801\n"),
+				cache4.lines("a\n\uD800\n", "a\n\uD801\n", DiffOptions.defaults()));
+		Assertions.assertEquals(Diff.lines("a\n\uD800\n", "a\n\uDC00\n"),
+				cache4.lines("a\n\uD800\n", "a\n\uDC00\n", DiffOptions.defaults()));
+	}
+
+	@Test
+	void testDiffResultCodec(@TempDir Path tmpDir) throws IOException {
+		DiffResult<String> diffResult = Diff.lines("line1\nline2\nline3\nline4\nline5\n",
+				"line1\nline2a\nline3\nline4\nline2a\nline6\n");
+		Path file = tmpDir.resolve("diff.bin");
+
+		DiffResultCodec.strings().write(diffResult, file);
+		Assertions.assertEquals(diffResult, DiffResultCodec.strings().read(file));
+		Assertions.assertThrows(IOException.class, () -> DiffResultCodec.characters().read(file));
+
+		DiffResult<String> surrogateResult = Diff.lines("a\n\uD800\n\uDC00b\n", "a\n\uD801\n\uDC00c\n");
+
+		DiffResultCodec.strings().write(surrogateResult, file);
+		Assertions.assertEquals(surrogateResult, DiffResultCodec.strings().read(file));
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		boolean restrained;
+
+		try (DiffResultWriter<String> writer = DiffResultCodec.strings().newWriter(buffer);
+				BufferedReader reader1 = new BufferedReader(new StringReader(CHARACTERS_1A.replace('e', '\n')));
+				BufferedReader reader2 = new BufferedReader(new StringReader(CHARACTERS_1B.replace('e', '\n')))) {
+			restrained = Diff.lines(reader1, reader2, DiffOptions.defaults(), writer);
+			writer.finish(restrained);
+		}
+
+		byte[] bytes = buffer.toByteArray();
+
+		Assertions.assertEquals(Diff.lines(CHARACTERS_1A.replace('e', '\n'), CHARACTERS_1B.replace('e', '\n')),
+				DiffResultCodec.strings().read(new ByteArrayInputStream(bytes)));
+		Assertions.assertThrows(IOException.class, () -> DiffResultCodec.strings()
+				.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1))));
+
+		DiffResult<Character> characterResult = Diff.characters(CHARACTERS_1A, CHARACTERS_1B);
+
+		buffer.reset();
+		DiffResultCodec.characters().write(characterResult, buffer);
+		Assertions.assertEquals(characterResult,
+				DiffResultCodec.characters().read(new ByteArrayInputStream(buffer.toByteArray())));
+
+		StringBuilder lines1 = new StringBuilder();
+		StringBuilder lines2 = new StringBuilder();
+		Random random = new Random(0);
+
+		for (int line = 0; line < 5000; line++) {
+			lines1.append(random.nextInt(10)).append('\n');
+			lines2.append(random.nextInt(10)).append('\n');
+		}
+
+		DiffResult<String> boundedResult = Diff.lines(lines1.toString(), lines2.toString(),
+				DiffOptions.defaults().withMaxEdits(10));
+
+		Assertions.assertTrue(boundedResult.isExceeded());
+
+		buffer.reset();
+		DiffResultCodec.strings().write(boundedResult, buffer);
+
+		DiffResult<String> decodedBoundedResult = DiffResultCodec.strings()
+				.read(new ByteArrayInputStream(buffer.toByteArray()));
+
+		Assertions.assertEquals(boundedResult, decodedBoundedResult);
+		Assertions.assertEquals(boundedResult.isRestrained(), decodedBoundedResult.isRestrained());
+		Assertions.assertTrue(decodedBoundedResult.isExceeded());
+		Assertions.assertFalse(decodedBoundedResult.isApproximate());
+
+		DiffResult<String> approximateResult = Diff.lines(lines1.toString(), lines2.toString(),
+				DiffOptions.defaults().withCancellation(() -> true));
+
+		Assertions.assertTrue(approximateResult.isApproximate());
+
+		buffer.reset();
+		try (DiffResultWriter<String> writer = DiffResultCodec.strings().newWriter(buffer)) {
+			for (DiffEntry<String> entry : approximateResult) {
+				writer.write(entry);
+			}
+			writer.finish(approximateResult.isRestrained(), approximateResult.isExceeded(),
+					approximateResult.isApproximate());
+		}
+
+		DiffResult<String> decodedApproximateResult = DiffResultCodec.strings()
+				.read(new ByteArrayInputStream(buffer.toByteArray()));
+
+		Assertions.assertEquals(approximateResult, decodedApproximateResult);
+		Assertions.assertEquals(approximateResult.isRestrained(), decodedApproximateResult.isRestrained());
+		Assertions.assertFalse(decodedApproximateResult.isExceeded());
+		Assertions.assertTrue(decodedApproximateResult.isApproximate());
+	}
+
+	@Test
+	void testByteDiff(@TempDir Path tmpDir) throws IOException {
+		byte[] bytes1 = new byte[0x100000];
+
+		new Random(0).nextBytes(bytes1);
+
+		byte[] bytes2 = Arrays.copyOf(bytes1, bytes1.length + 2);
+
+		System.arraycopy(bytes1, 0x1000, bytes2, 0x1002, bytes1.length - 0x1000);
+		bytes2[0x1000] = 0x01;
+		bytes2[0x1001] = 0x02;
+		bytes2[0x80000] ^= 0xff;
+
+		Assertions.assertEquals(DiffResult.byteMatch(), Diff.bytes(bytes1, bytes1.clone()));
+
+		DiffResult<ByteRange> diffResult1 = Diff.bytes(bytes1, bytes2);
+
+		Assertions.assertEquals(3, diffResult1.size());
+		Assertions.assertEquals("@4096:+0102", diffResult1.entryAt(0).toString());
+		Assertions.assertEquals(0x7fffe, diffResult1.entryAt(1).position());
+		Assertions.assertEquals(DiffEntry.Type.INSERT, diffResult1.entryAt(1).type());
+		Assertions.assertEquals(0x7fffe, diffResult1.entryAt(2).position());
+		Assertions.assertEquals(DiffEntry.Type.DELETE, diffResult1.entryAt(2).type());
+
+		Path file1 = Files.write(tmpDir.resolve("file1.bin"), bytes1);
+		Path file2 = Files.write(tmpDir.resolve("file2.bin"), bytes2);
+
+		Assertions.assertEquals(diffResult1.toString(), Diff.bytes(file1, file2).toString());
+	}
+
+	@Test
+	void testTreeDiff(@TempDir Path tmpDir) throws IOException {
+		Path root1 = Files.createDirectories(tmpDir.resolve("tree1").resolve("sub"));
+		Path root2 = Files.createDirectories(tmpDir.resolve("tree2").resolve("sub"));
+
+		Files.writeString(root1.resolve("same.txt"), "line1\nline2\n");
+		Files.writeString(root2.resolve("same.txt"), "line1\nline2\n");
+		Files.writeString(root1.resolve("changed.txt"), "line1\nline2\nline3\n");
+		Files.writeString(root2.resolve("changed.txt"), "line1\nline2a\nline3\n");
+		Files.writeString(root1.resolve("removed.txt"), "line1\n");
+		Files.writeString(root2.resolve("added.txt"), "line1\n");
+		Files.write(root1.resolve("changed.bin"), new byte[] { 0x00, 0x01, 0x02, 0x03 });
+		Files.write(root2.resolve("changed.bin"), new byte[] { 0x00, 0x01, 0x04, 0x03 });
+
+		Assertions.assertTrue(Diff.trees(root1.getParent(), root1.getParent()).isMatch());
+
+		TreeDiffResult diffResult = Diff.trees(root1.getParent(), root2.getParent());
+
+		Assertions.assertEquals(4, diffResult.size());
+		Assertions.assertNull(diffResult.entry(Paths.get("sub", "same.txt")));
+
+		TreeDiffEntry changedText = Objects.requireNonNull(diffResult.entry(Paths.get("sub", "changed.txt")));
+
+		Assertions.assertEquals(TreeDiffEntry.Type.CHANGED, changedText.type());
+		Assertions.assertEquals(2, Objects.requireNonNull(changedText.lines()).size());
+
+		TreeDiffEntry changedBinary = Objects.requireNonNull(diffResult.entry(Paths.get("sub", "changed.bin")));
+
+		Assertions.assertTrue(changedBinary.isBinary());
+		Assertions.assertEquals(TreeDiffEntry.Type.REMOVED,
+				Objects.requireNonNull(diffResult.entry(Paths.get("sub", "removed.txt"))).type());
+		Assertions.assertEquals(TreeDiffEntry.Type.ADDED,
+				Objects.requireNonNull(diffResult.entry(Paths.get("sub", "added.txt"))).type());
+	}
+
+	@Test
+	void testBatchDiff(@TempDir Path tmpDir) throws IOException {
+		List<FileDiffPair> pairs = new ArrayList<>();
+
+		for (int pairIndex = 0; pairIndex < 20; pairIndex++) {
+			Path file1 = Files.writeString(tmpDir.resolve(pairIndex + "a.txt"), "line1\nline2\n");
+			Path file2 = Files.writeString(tmpDir.resolve(pairIndex + "b.txt"),
+					(pairIndex % 5 == 0 ? "line1\nline2a\n" : "line1\nline2\n"));
+
+			pairs.add(FileDiffPair.of(file1.toFile(), file2.toFile()));
+		}
+		pairs.add(FileDiffPair.of(tmpDir.resolve("missing.txt").toFile(), tmpDir.resolve("0a.txt").toFile()));
+
+		List<FileDiffResult> diffResults = Diff.batchLineStream(pairs).collect(Collectors.toList());
+
+		Assertions.assertEquals(pairs.size(), diffResults.size());
+		Assertions.assertEquals(1, diffResults.stream().filter(FileDiffResult::isFailed).count());
+
+		ExecutorService executor = Diff.newBatchExecutor();
+
+		try {
+			List<CompletableFuture<FileDiffResult>> futures = Diff.batchLines(pairs, StandardCharsets.UTF_8,
+					DiffOptions.defaults(), executor);
+
+			Assertions.assertEquals(2, futures.get(0).join().result().size());
+			Assertions.assertEquals(DiffResult.lineMatch(), futures.get(1).join().result());
+			Assertions.assertThrows(IOException.class, () -> futures.get(20).join().result());
+		} finally {
+			executor.shutdown();
+		}
 	}
 
 	private DiffResult<String> diffLines(File file1, File file2) throws IOException {